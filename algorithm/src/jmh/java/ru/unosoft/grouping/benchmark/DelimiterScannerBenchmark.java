@@ -0,0 +1,110 @@
+package ru.unosoft.grouping.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ru.unosoft.grouping.util.CsvTokenizer;
+import ru.unosoft.grouping.util.DelimiterScanner;
+import ru.unosoft.grouping.util.ScalarDelimiterScanner;
+import ru.unosoft.grouping.util.VectorDelimiterScanner;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение побайтового и векторного поиска структурных символов CSV.
+ * <p>
+ * Буфер заполняется строками в формате входного файла: значения в кавычках, часть из них пустые.
+ * Скорость в байтах в секунду равна размеру буфера, делённому на среднее время операции.
+ * <ul>
+ *     <li>{@code scan} — только построение битовых карт разделителей, кавычек и переводов строк,
+ *     включая их обнуление, которого требует {@link DelimiterScanner#scan};</li>
+ *     <li>{@code tokenize} — битовые карты и границы строк и колонок.</li>
+ * </ul>
+ * Запуск: {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DelimiterScannerBenchmark {
+
+    private static final int BUFFER_BYTES = 16 << 20;
+
+    private static final int COLUMNS = 3;
+
+    private static final int EMPTY_VALUE_PERCENT = 20;
+
+    @Param({"SCALAR", "VECTOR"})
+    private String scanner;
+
+    private byte[] buffer;
+
+    private DelimiterScanner delimiterScanner;
+
+    private CsvTokenizer csvTokenizer;
+
+    private long[] delimiters;
+
+    private long[] quotes;
+
+    private long[] newLines;
+
+    @Setup
+    public void setup() {
+        buffer = generateCsv(new Random(42));
+        delimiterScanner = "VECTOR".equals(scanner) ? new VectorDelimiterScanner() : new ScalarDelimiterScanner();
+        csvTokenizer = new CsvTokenizer(delimiterScanner);
+        int words = (buffer.length + 63) >>> 6;
+        delimiters = new long[words];
+        quotes = new long[words];
+        newLines = new long[words];
+    }
+
+    /**
+     * Построение битовых карт структурных символов.
+     * <p>
+     * Сканер только устанавливает биты, поэтому карты обнуляются перед каждым вызовом,
+     * как при выделении новых карт в {@link CsvTokenizer#tokenize}.
+     *
+     * @return Последнее слово карты переводов строк, чтобы JIT не удалил вычисления.
+     */
+    @Benchmark
+    public long scan() {
+        Arrays.fill(delimiters, 0);
+        Arrays.fill(quotes, 0);
+        Arrays.fill(newLines, 0);
+        delimiterScanner.scan(buffer, 0, buffer.length, delimiters, quotes, newLines);
+        return newLines[newLines.length - 1];
+    }
+
+    /**
+     * Поиск границ строк и колонок.
+     *
+     * @return Количество строк, чтобы JIT не удалил вычисления.
+     */
+    @Benchmark
+    public int tokenize() {
+        return csvTokenizer.tokenize(buffer, 0, buffer.length).rowCount();
+    }
+
+    private byte[] generateCsv(Random random) {
+        StringBuilder builder = new StringBuilder(BUFFER_BYTES + 64);
+        while (builder.length() < BUFFER_BYTES) {
+            for (int column = 0; column < COLUMNS; column++) {
+                if (column > 0) builder.append(';');
+                builder.append('"');
+                if (random.nextInt(100) >= EMPTY_VALUE_PERCENT) builder.append(random.nextLong(100_000_000_000L));
+                builder.append('"');
+            }
+            builder.append('\n');
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,111 @@
+package ru.unosoft.grouping.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ru.unosoft.grouping.util.DisjointSet;
+import ru.unosoft.grouping.util.DisjointSetType;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение реализаций {@link DisjointSet} на характерных формах входных данных.
+ * <p>
+ * Каждая итерация повторяет работу группировки: создание структуры, объединение строк с совпадающими
+ * значениями и поиск корня каждой строки при сборке групп.
+ * <ul>
+ *     <li>{@code SPARSE} — большинство строк остаются одиночными, объединяются соседние строки;</li>
+ *     <li>{@code RANDOM} — случайные объединения по всему файлу, образующие одну большую группу;</li>
+ *     <li>{@code CHAIN} — каждая строка совпадает с предыдущей, образуя одну длинную цепочку.</li>
+ * </ul>
+ * Запуск: {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DisjointSetBenchmark {
+
+    private static final int SPARSE_UNION_DIVISOR = 20;
+
+    private static final int SPARSE_NEIGHBOURHOOD = 1000;
+
+    @Param({"RANK", "PATH_HALVING", "SIZE", "PAGED"})
+    private DisjointSetType type;
+
+    @Param({"SPARSE", "RANDOM", "CHAIN"})
+    private String shape;
+
+    @Param({"1000000", "10000000"})
+    private int size;
+
+    private int[] left;
+
+    private int[] right;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        int count = switch (shape) {
+            case "SPARSE" -> size / SPARSE_UNION_DIVISOR;
+            case "RANDOM" -> size;
+            default -> size - 1;
+        };
+        left = new int[count];
+        right = new int[count];
+        for (int i = 0; i < count; i++) {
+            switch (shape) {
+                case "SPARSE" -> {
+                    left[i] = random.nextInt(size);
+                    right[i] = Math.min(size - 1, left[i] + 1 + random.nextInt(SPARSE_NEIGHBOURHOOD));
+                }
+                case "RANDOM" -> {
+                    left[i] = random.nextInt(size);
+                    right[i] = random.nextInt(size);
+                }
+                default -> {
+                    left[i] = i;
+                    right[i] = i + 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Группировка при известном заранее количестве строк.
+     *
+     * @return Контрольная сумма корней, чтобы JIT не удалил вычисления.
+     */
+    @Benchmark
+    public long groupPresized() {
+        return group(type.create(size), false);
+    }
+
+    /**
+     * Группировка при поступлении строк пакетами, когда структура расширяется по мере роста номеров строк.
+     *
+     * @return Контрольная сумма корней, чтобы JIT не удалил вычисления.
+     */
+    @Benchmark
+    public long groupGrowing() {
+        return group(type.create(1), true);
+    }
+
+    private long group(DisjointSet set, boolean growing) {
+        for (int i = 0; i < left.length; i++) {
+            if (growing) set.ensureCapacity(Math.max(left[i], right[i]) + 1);
+            set.union(left[i], right[i]);
+        }
+        long checksum = 0;
+        for (int x = 0; x < size; x++) {
+            if (growing) set.ensureCapacity(x + 1);
+            checksum += set.find(x);
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,188 @@
+package ru.unosoft.grouping.columnar;
+
+import ru.unosoft.grouping.util.MappedRegion;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Колоночный файл, отображённый в память.
+ * <p>
+ * Идентификаторы значений, смещения, количество колонок и флаги строк читаются прямо из отображения,
+ * словари колонок декодируются один раз при открытии. Формат файла описан в {@link ColumnarFormat}.
+ * Экземпляр неизменяем и потокобезопасен.
+ */
+public class ColumnarFile {
+
+    private final int rowCount;
+
+    private final int columnCount;
+
+    private final MappedRegion rowOffsets;
+
+    private final MappedRegion valueIds;
+
+    private final MappedRegion rowWidths;
+
+    private final MappedRegion flags;
+
+    private final String[][] dictionaries;
+
+    private ColumnarFile(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(ColumnarFormat.HEADER_SIZE);
+        channel.read(header, 0);
+        header.flip();
+        if (header.remaining() < ColumnarFormat.HEADER_SIZE || header.getInt() != ColumnarFormat.MAGIC) {
+            throw new IOException("Файл не является колоночным файлом");
+        }
+        int version = header.getInt();
+        if (version != ColumnarFormat.VERSION) {
+            throw new IOException("Неподдерживаемая версия колоночного файла: " + version);
+        }
+        rowCount = header.getInt();
+        columnCount = header.getInt();
+        rowOffsets = new MappedRegion(channel, header.getLong(), (long) rowCount * Long.BYTES);
+        valueIds = new MappedRegion(channel, header.getLong(), (long) columnCount * rowCount * Integer.BYTES);
+        rowWidths = new MappedRegion(channel, header.getLong(), (long) rowCount * Integer.BYTES);
+        flags = new MappedRegion(channel, header.getLong(), rowCount);
+        dictionaries = readDictionaries(channel.position(header.getLong()), columnCount);
+    }
+
+    /**
+     * Открывает колоночный файл и отображает его в память.
+     *
+     * @param path Путь к колоночному файлу.
+     * @return Колоночный файл.
+     * @throws IOException Если файл не найден, повреждён или имеет неподдерживаемую версию.
+     */
+    public static ColumnarFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new ColumnarFile(channel);
+        }
+    }
+
+    /**
+     * Возвращает количество строк, включая повторяющиеся.
+     *
+     * @return Количество строк.
+     */
+    public int rowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Возвращает наибольшее количество колонок в строках файла.
+     *
+     * @return Количество колонок.
+     */
+    public int columnCount() {
+        return columnCount;
+    }
+
+    /**
+     * Проверяет, повторяет ли строка одну из предыдущих строк файла.
+     *
+     * @param row Номер строки.
+     * @return true, если строка повторяющаяся; иначе false.
+     */
+    public boolean isDuplicate(int row) {
+        return (flags.getByte(row) & ColumnarFormat.DUPLICATE) != 0;
+    }
+
+    /**
+     * Возвращает смещение строки в исходном тексте.
+     *
+     * @param row Номер строки.
+     * @return Смещение начала строки в байтах.
+     */
+    public long rowOffset(int row) {
+        return rowOffsets.getLong(row);
+    }
+
+    /**
+     * Возвращает количество колонок строки.
+     *
+     * @param row Номер строки.
+     * @return Количество колонок.
+     */
+    public int rowWidth(int row) {
+        return rowWidths.getInt(row);
+    }
+
+    /**
+     * Возвращает идентификатор значения колонки строки.
+     *
+     * @param column Номер колонки.
+     * @param row    Номер строки.
+     * @return Идентификатор значения или 0, если значение пустое или отсутствует.
+     */
+    public int valueId(int column, int row) {
+        return valueIds.getInt((long) column * rowCount + row);
+    }
+
+    /**
+     * Возвращает количество различных непустых значений колонки.
+     *
+     * @param column Номер колонки.
+     * @return Размер словаря колонки.
+     */
+    public int dictionarySize(int column) {
+        return dictionaries[column].length - 1;
+    }
+
+    /**
+     * Возвращает значение колонки по идентификатору.
+     *
+     * @param column Номер колонки.
+     * @param id     Идентификатор значения.
+     * @return Значение колонки; для идентификатора 0 — пустая строка.
+     */
+    public String value(int column, int id) {
+        return dictionaries[column][id];
+    }
+
+    /**
+     * Восстанавливает значения колонок строки.
+     *
+     * @param row Номер строки.
+     * @return Массив значений колонок в том виде, в котором они были прочитаны из CSV файла.
+     */
+    public String[] line(int row) {
+        String[] line = new String[rowWidth(row)];
+        for (int column = 0; column < line.length; column++) {
+            line[column] = value(column, valueId(column, row));
+        }
+        return line;
+    }
+
+    /**
+     * Читает и декодирует словари колонок.
+     *
+     * @param channel     Канал файла, установленный на начало секции словарей.
+     * @param columnCount Количество колонок.
+     * @return Словари колонок, в которых элемент 0 — пустая строка.
+     * @throws IOException Если произошла ошибка при чтении.
+     */
+    private static String[][] readDictionaries(FileChannel channel, int columnCount) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        String[][] dictionaries = new String[columnCount][];
+        for (int column = 0; column < columnCount; column++) {
+            String[] dictionary = new String[input.readInt() + 1];
+            dictionary[0] = "";
+            for (int id = 1; id < dictionary.length; id++) {
+                byte[] bytes = new byte[input.readInt()];
+                input.readFully(bytes);
+                dictionary[id] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            dictionaries[column] = dictionary;
+        }
+        return dictionaries;
+    }
+}
@@ -0,0 +1,50 @@
+package ru.unosoft.grouping.columnar;
+
+/**
+ * Описание бинарного колоночного формата входных данных.
+ * <p>
+ * Файл создаётся один раз из CSV файла и затем может группироваться многократно без разбора текста.
+ * Файл начинается с заголовка фиксированного размера, за которым следуют секции:
+ * <ul>
+ *     <li>смещения строк — {@code long[rowCount]}, позиция начала строки в исходном тексте
+ *     (для сжатых файлов — в распакованном тексте);</li>
+ *     <li>идентификаторы значений — по {@code int[rowCount]} на каждую колонку подряд; 0 означает пустое
+ *     или отсутствующее значение, идентификатор k — k-е значение словаря колонки, начиная с единицы;</li>
+ *     <li>количество колонок каждой строки — {@code int[rowCount]};</li>
+ *     <li>флаги строк — {@code byte[rowCount]}, см. {@link #DUPLICATE};</li>
+ *     <li>словари колонок — для каждой колонки количество значений {@code int}, затем для каждого значения
+ *     длина {@code int} и байты в кодировке UTF-8, в порядке первого появления значения.</li>
+ * </ul>
+ * Строки пронумерованы в порядке исходного файла, невалидные строки в файл не попадают.
+ * Все числа записываются в порядке big-endian.
+ */
+public final class ColumnarFormat {
+
+    /**
+     * Сигнатура колоночного файла.
+     */
+    public static final int MAGIC = 0x47434F4C;
+
+    /**
+     * Версия формата.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Размер заголовка в байтах: четыре int и пять long.
+     */
+    public static final int HEADER_SIZE = 4 * Integer.BYTES + 5 * Long.BYTES;
+
+    /**
+     * Расширение колоночного файла.
+     */
+    public static final String FILE_EXTENSION = ".col";
+
+    /**
+     * Флаг строки, повторяющей одну из предыдущих строк файла.
+     */
+    public static final byte DUPLICATE = 1;
+
+    private ColumnarFormat() {
+    }
+}
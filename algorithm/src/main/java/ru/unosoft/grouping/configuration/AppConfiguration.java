@@ -3,6 +3,7 @@ package ru.unosoft.grouping.configuration;
 import lombok.Getter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import ru.unosoft.grouping.util.DisjointSetType;
 
 /**
  * Конфигурационный класс для управления параметрами приложения.
@@ -24,4 +25,72 @@ public class AppConfiguration {
      */
     @Value("${app.output.file}")
     private String outputFile;
+
+    /**
+     * Количество потоков, форматирующих группы при записи выходного файла.
+     */
+    @Value("${app.output.parallelism:4}")
+    private int outputParallelism;
+
+    /**
+     * Примерное количество строк выходного файла в одном диапазоне групп, форматируемом одним потоком.
+     */
+    @Value("${app.output.range-lines:65536}")
+    private int outputRangeLines;
+
+    /**
+     * Путь к файлу бинарного индекса групп. Если путь не задан, индекс не создаётся.
+     * Для построения индекса входной файл читается повторно.
+     */
+    @Value("${app.index.file:}")
+    private String indexFile;
+
+    /**
+     * Количество строк, читаемых из входного файла для планирования обработки.
+     */
+    @Value("${app.planning.sample-lines:10000}")
+    private int planningSampleLines;
+
+    /**
+     * Количество дополнительных участков несжатого файла, из которых делается выборка при планировании.
+     */
+    @Value("${app.planning.sample-points:8}")
+    private int planningSamplePoints;
+
+    /**
+     * Реализация системы непересекающихся множеств для объединения строк в группы.
+     */
+    @Value("${app.disjoint-set:RANK}")
+    private DisjointSetType disjointSet;
+
+    /**
+     * Признак обработки файла конвейером с одновременной работой этапов чтения, разбора и группировки.
+     * По умолчанию выключен, так как конвейер иначе обрабатывает значения в кавычках.
+     */
+    @Value("${app.pipeline.enabled:false}")
+    private boolean pipelineEnabled;
+
+    /**
+     * Размер участка файла в байтах, читаемого в один пакет конвейера.
+     */
+    @Value("${app.pipeline.batch-bytes:1048576}")
+    private int pipelineBatchBytes;
+
+    /**
+     * Количество потоков этапа разбора.
+     */
+    @Value("${app.pipeline.parse.parallelism:4}")
+    private int pipelineParseParallelism;
+
+    /**
+     * Ёмкость очереди пакетов, ожидающих разбора.
+     */
+    @Value("${app.pipeline.parse.queue-depth:8}")
+    private int pipelineParseQueueDepth;
+
+    /**
+     * Ёмкость очереди пакетов, ожидающих группировки.
+     */
+    @Value("${app.pipeline.group.queue-depth:16}")
+    private int pipelineGroupQueueDepth;
 }
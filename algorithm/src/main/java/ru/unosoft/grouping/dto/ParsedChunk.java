@@ -0,0 +1,26 @@
+package ru.unosoft.grouping.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * DTO для представления результата разбора участка файла.
+ * <p>
+ * Содержит валидные записи участка и позиции их начала в буфере участка.
+ */
+@Getter
+@AllArgsConstructor
+public class ParsedChunk {
+
+    /**
+     * Список валидных записей, каждая представлена массивом значений колонок.
+     */
+    private final List<String[]> lines;
+
+    /**
+     * Позиции начала записей в буфере участка, в том же порядке, что и записи.
+     */
+    private final int[] rowStarts;
+}
@@ -0,0 +1,83 @@
+package ru.unosoft.grouping.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ru.unosoft.grouping.util.DisjointSetType;
+
+/**
+ * DTO для представления плана обработки, построенного по выборке из входного файла.
+ * <p>
+ * Содержит оценки размеров входных данных и начальные ёмкости структур, используемых при чтении и группировке.
+ */
+@Getter
+@AllArgsConstructor
+public class ProcessingPlan {
+
+    /**
+     * Ёмкость структур по умолчанию, когда оценить размер входных данных невозможно.
+     */
+    public static final int DEFAULT_CAPACITY = 1_000_000;
+
+    /**
+     * Оценка количества строк во входном файле.
+     */
+    private final long estimatedRows;
+
+    /**
+     * Оценка количества колонок в строке.
+     */
+    private final int estimatedColumns;
+
+    /**
+     * Оценка количества различных непустых значений в каждой колонке.
+     */
+    private final long[] estimatedCardinalities;
+
+    /**
+     * Начальная ёмкость списка прочитанных строк.
+     */
+    private final int rowCapacity;
+
+    /**
+     * Начальная ёмкость множества для проверки уникальности строк.
+     */
+    private final int uniqueLinesCapacity;
+
+    /**
+     * Начальная ёмкость мапы, сопоставляющей значения колонок с индексами строк.
+     */
+    private final int columnIndexCapacity;
+
+    /**
+     * Выбранная стратегия размещения данных.
+     */
+    private final ProcessingStrategy strategy;
+
+    /**
+     * Реализация системы непересекающихся множеств для объединения строк.
+     */
+    private final DisjointSetType disjointSetType;
+
+    /**
+     * Создаёт план по умолчанию, используемый, когда выборку из файла сделать невозможно.
+     *
+     * @return План с ёмкостями по умолчанию, обработкой в памяти и объединением по рангу.
+     */
+    public static ProcessingPlan defaultPlan() {
+        return defaultPlan(DisjointSetType.RANK);
+    }
+
+    /**
+     * Создаёт план по умолчанию с заданной реализацией системы непересекающихся множеств.
+     *
+     * @param disjointSetType Реализация системы непересекающихся множеств.
+     * @return План с ёмкостями по умолчанию и обработкой в памяти.
+     */
+    public static ProcessingPlan defaultPlan(DisjointSetType disjointSetType) {
+        return new ProcessingPlan(
+                -1, -1, new long[0],
+                DEFAULT_CAPACITY, DEFAULT_CAPACITY, DEFAULT_CAPACITY,
+                ProcessingStrategy.IN_MEMORY, disjointSetType
+        );
+    }
+}
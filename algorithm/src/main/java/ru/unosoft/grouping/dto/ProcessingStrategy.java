@@ -0,0 +1,22 @@
+package ru.unosoft.grouping.dto;
+
+/**
+ * Стратегия размещения данных при обработке, выбираемая на этапе планирования.
+ */
+public enum ProcessingStrategy {
+
+    /**
+     * Все строки и индексы колонок размещаются в куче.
+     */
+    IN_MEMORY,
+
+    /**
+     * Данные не помещаются в кучу, но помещаются в физическую память и могут быть вынесены вне кучи.
+     */
+    OFF_HEAP,
+
+    /**
+     * Данные не помещаются в память и должны частично сбрасываться на диск.
+     */
+    SPILLING
+}
@@ -0,0 +1,278 @@
+package ru.unosoft.grouping.index;
+
+import ru.unosoft.grouping.util.MappedRegion;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Индекс групп, отображённый в память, для точечных запросов без загрузки результатов в кучу.
+ * <p>
+ * Отвечает на вопросы «в какой группе строка входного файла или значение колонки» и «какие строки входят
+ * в группу». Строки входного файла нумеруются с нуля, группы — с единицы, как в выходном файле.
+ * Строки группы возвращаются в порядке выходного файла вместе с их смещениями во входном файле.
+ * Формат файла описан в {@link GroupIndexFormat}. Экземпляр неизменяем и потокобезопасен.
+ */
+public class GroupIndex {
+
+    /**
+     * Результат поиска, когда группа не найдена.
+     */
+    public static final int NOT_FOUND = -1;
+
+    private final int groupCount;
+
+    private final int rowCount;
+
+    private final int slotMask;
+
+    private final MappedRegion groupStarts;
+
+    private final MappedRegion memberOffsets;
+
+    private final MappedRegion textOffsets;
+
+    private final MappedRegion text;
+
+    private final MappedRegion rowGroups;
+
+    private final MappedRegion slotColumns;
+
+    private final MappedRegion slotHashes;
+
+    private final MappedRegion slotMembers;
+
+    private final MappedRegion memberColumns;
+
+    private final MappedRegion columnEnds;
+
+    private GroupIndex(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(GroupIndexFormat.HEADER_SIZE);
+        channel.read(header, 0);
+        header.flip();
+        if (header.remaining() < GroupIndexFormat.HEADER_SIZE || header.getInt() != GroupIndexFormat.MAGIC) {
+            throw new IOException("Файл не является индексом групп");
+        }
+        int version = header.getInt();
+        if (version != GroupIndexFormat.VERSION) {
+            throw new IOException("Неподдерживаемая версия индекса групп: " + version);
+        }
+        groupCount = header.getInt();
+        rowCount = header.getInt();
+        int memberCount = header.getInt();
+        int slotCount = header.getInt();
+        slotMask = slotCount - 1;
+        groupStarts = new MappedRegion(channel, header.getLong(), (groupCount + 1L) * Integer.BYTES);
+        memberOffsets = new MappedRegion(channel, header.getLong(), (long) memberCount * Long.BYTES);
+        textOffsets = new MappedRegion(channel, header.getLong(), (memberCount + 1L) * Long.BYTES);
+        text = new MappedRegion(channel, header.getLong(), textOffsets.getLong(memberCount));
+        rowGroups = new MappedRegion(channel, header.getLong(), (long) rowCount * Integer.BYTES);
+        slotColumns = new MappedRegion(channel, header.getLong(), (long) slotCount * Integer.BYTES);
+        slotHashes = new MappedRegion(channel, header.getLong(), (long) slotCount * Integer.BYTES);
+        slotMembers = new MappedRegion(channel, header.getLong(), (long) slotCount * Integer.BYTES);
+        memberColumns = new MappedRegion(channel, header.getLong(), (memberCount + 1L) * Integer.BYTES);
+        long columnCount = memberColumns.getInt(memberCount);
+        columnEnds = new MappedRegion(channel, header.getLong(), columnCount * Integer.BYTES);
+    }
+
+    /**
+     * Открывает индекс групп и отображает его в память.
+     *
+     * @param path Путь к файлу индекса.
+     * @return Индекс групп.
+     * @throws IOException Если файл не найден, повреждён или имеет неподдерживаемую версию.
+     */
+    public static GroupIndex open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new GroupIndex(channel);
+        }
+    }
+
+    /**
+     * Возвращает количество групп.
+     *
+     * @return Количество групп.
+     */
+    public int groupCount() {
+        return groupCount;
+    }
+
+    /**
+     * Возвращает количество строк входного файла.
+     *
+     * @return Количество строк.
+     */
+    public int rowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Находит группу строки входного файла.
+     * <p>
+     * Повторяющаяся строка относится к группе своего первого появления. Запись, значение которой в кавычках
+     * содержит перевод строки, относится к строке, в которой она начинается.
+     *
+     * @param row Номер строки входного файла, начиная с нуля.
+     * @return Номер группы или {@link #NOT_FOUND}, если строка пустая, невалидная, продолжает запись
+     *         с предыдущей строки или номер вне файла.
+     */
+    public int groupOfRow(int row) {
+        if (row < 0 || row >= rowCount) return NOT_FOUND;
+        int group = rowGroups.getInt(row);
+        return group < 0 ? NOT_FOUND : group + 1;
+    }
+
+    /**
+     * Находит группу, в которой значение встречается в заданной колонке.
+     * <p>
+     * Одинаковое непустое значение в одной колонке всегда объединяет строки, поэтому группа единственна.
+     *
+     * @param column Номер колонки, начиная с нуля.
+     * @param value  Значение колонки.
+     * @return Номер группы или {@link #NOT_FOUND}, если значение не встречается.
+     */
+    public int findGroup(int column, String value) {
+        if (column < 0 || value == null || value.isEmpty()) return NOT_FOUND;
+        int hash = value.hashCode();
+        for (int slot = GroupIndexFormat.slot(column, hash, slotMask); ; slot = (slot + 1) & slotMask) {
+            int slotColumn = slotColumns.getInt(slot);
+            if (slotColumn == 0) return NOT_FOUND;
+            if (slotColumn != column + 1 || slotHashes.getInt(slot) != hash) continue;
+            int member = slotMembers.getInt(slot);
+            int group = groupOfMember(member);
+            if (groupContainsValue(group, member, column, value)) return group + 1;
+        }
+    }
+
+    /**
+     * Возвращает количество строк в группе.
+     *
+     * @param group Номер группы.
+     * @return Количество строк или 0, если группы с таким номером нет.
+     */
+    public int groupSize(int group) {
+        if (!hasGroup(group)) return 0;
+        return groupStarts.getInt(group) - groupStarts.getInt(group - 1);
+    }
+
+    /**
+     * Возвращает смещения строк группы во входном файле.
+     * <p>
+     * Для повторяющихся строк возвращается смещение первого появления. Для колоночного входного файла
+     * смещения указывают на исходный CSV файл, из которого он создан.
+     *
+     * @param group Номер группы.
+     * @return Смещения в байтах в порядке выходного файла или {@link GroupIndexFormat#NO_OFFSET}
+     *         для строк, не найденных во входном файле; пустой массив, если группы с таким номером нет.
+     */
+    public long[] groupRowOffsets(int group) {
+        if (!hasGroup(group)) return new long[0];
+        int start = groupStarts.getInt(group - 1);
+        long[] offsets = new long[groupSize(group)];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = memberOffsets.getLong(start + i);
+        }
+        return offsets;
+    }
+
+    /**
+     * Возвращает строки группы.
+     *
+     * @param group Номер группы.
+     * @return Список строк группы в порядке выходного файла или пустой список, если группы с таким номером нет.
+     */
+    public List<String> groupRows(int group) {
+        if (!hasGroup(group)) return List.of();
+        int start = groupStarts.getInt(group - 1);
+        int end = groupStarts.getInt(group);
+        List<String> rows = new ArrayList<>(end - start);
+        for (int member = start; member < end; member++) {
+            rows.add(member(member));
+        }
+        return rows;
+    }
+
+    /**
+     * Проверяет, есть ли в индексе группа с заданным номером.
+     *
+     * @param group Номер группы.
+     * @return true, если номер от 1 до количества групп; иначе false.
+     */
+    private boolean hasGroup(int group) {
+        return group >= 1 && group <= groupCount;
+    }
+
+    /**
+     * Возвращает текст строки группы.
+     *
+     * @param member Номер строки группы в порядке выходного файла.
+     * @return Строка в том виде, в котором она записана в выходной файл.
+     */
+    private String member(int member) {
+        long start = textOffsets.getLong(member);
+        int length = (int) (textOffsets.getLong(member + 1L) - start);
+        return new String(text.getBytes(start, length), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Находит группу строки группы двоичным поиском по началам групп.
+     *
+     * @param member Номер строки группы в порядке выходного файла.
+     * @return Номер группы, начиная с нуля.
+     */
+    private int groupOfMember(int member) {
+        int low = 0;
+        int high = groupCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (groupStarts.getInt(mid) <= member) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Проверяет, встречается ли значение в колонке какой-либо строки группы.
+     * <p>
+     * Сначала проверяется строка из хеш-таблицы, и только при коллизии хешей просматривается вся группа:
+     * строка из хеш-таблицы — первая во входном файле, а не в группе.
+     *
+     * @param group       Номер группы, начиная с нуля.
+     * @param firstMember Строка группы из хеш-таблицы.
+     * @param column      Номер колонки.
+     * @param value       Значение колонки.
+     * @return true, если значение найдено; иначе false.
+     */
+    private boolean groupContainsValue(int group, int firstMember, int column, String value) {
+        if (value.equals(columnValue(firstMember, column))) return true;
+        int end = groupStarts.getInt(group + 1);
+        for (int member = groupStarts.getInt(group); member < end; member++) {
+            if (member != firstMember && value.equals(columnValue(member, column))) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Извлекает значение колонки строки группы по границам колонок.
+     *
+     * @param member Номер строки группы в порядке выходного файла.
+     * @param column Номер колонки.
+     * @return Значение колонки или null, если колонок меньше.
+     */
+    private String columnValue(int member, int column) {
+        int first = memberColumns.getInt(member);
+        if (column >= memberColumns.getInt(member + 1L) - first) return null;
+        int start = column == 0 ? 0 : columnEnds.getInt(first + column - 1L) + 1;
+        int end = columnEnds.getInt(first + (long) column);
+        return new String(text.getBytes(textOffsets.getLong(member) + start, end - start), StandardCharsets.UTF_8);
+    }
+}
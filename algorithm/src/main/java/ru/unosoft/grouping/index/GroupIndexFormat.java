@@ -0,0 +1,77 @@
+package ru.unosoft.grouping.index;
+
+/**
+ * Описание формата бинарного индекса групп.
+ * <p>
+ * Файл начинается с заголовка фиксированного размера, за которым следуют секции:
+ * <ul>
+ *     <li>начало каждой группы в нумерации строк групп — {@code int[groupCount + 1]}, строки группы идут подряд;</li>
+ *     <li>смещения строк групп во входном файле — {@code long[memberCount]}, смещение первого появления строки
+ *     или {@link #NO_OFFSET}, если строка не найдена при повторном чтении входного файла;</li>
+ *     <li>смещения текста строк групп — {@code long[memberCount + 1]} относительно начала секции текста;</li>
+ *     <li>текст строк групп в кодировке UTF-8;</li>
+ *     <li>номер группы каждой строки входного файла — {@code int[rowCount]}, -1 для пустых, невалидных
+ *     и не найденных строк, а также для продолжений записей, начавшихся на предыдущих строках;</li>
+ *     <li>хеш-таблица с открытой адресацией для поиска по паре (колонка, хеш значения) —
+ *     три массива {@code int[slotCount]}: номер колонки плюс один (0 — пустая ячейка), хеш значения и строка
+ *     группы, в которой значение встретилось первым во входном файле;</li>
+ *     <li>начало концов колонок каждой строки группы в следующей секции — {@code int[memberCount + 1]},
+ *     концы колонок строки идут подряд; у строк, не найденных во входном файле, колонок нет;</li>
+ *     <li>концы колонок строк групп — {@code int[columnCount]}, смещение в байтах конца колонки
+ *     от начала текста строки; следующая колонка начинается через один байт разделителя.</li>
+ * </ul>
+ * Границы колонок берутся из разобранной записи, поэтому значение, содержащее точку с запятой,
+ * не делится на несколько колонок.
+ * Строки групп и группы пронумерованы с нуля в порядке выходного файла. Строки входного CSV файла
+ * пронумерованы с нуля по переводам строки, строки колоночного файла — так же, как в нём самом.
+ * Смещения считаются в байтах от начала входного CSV файла, для сжатых файлов — от начала распакованного текста.
+ * Все числа записываются в порядке big-endian.
+ */
+public final class GroupIndexFormat {
+
+    /**
+     * Сигнатура файла индекса.
+     */
+    public static final int MAGIC = 0x47494458;
+
+    /**
+     * Версия формата.
+     */
+    public static final int VERSION = 3;
+
+    /**
+     * Размер заголовка в байтах: шесть int и десять long.
+     */
+    public static final int HEADER_SIZE = 6 * Integer.BYTES + 10 * Long.BYTES;
+
+    /**
+     * Смещение строки группы, которая не найдена во входном файле.
+     */
+    public static final long NO_OFFSET = -1;
+
+    /**
+     * Максимальная доля занятых ячеек хеш-таблицы.
+     */
+    public static final double MAX_SLOT_LOAD = 0.75;
+
+    private GroupIndexFormat() {
+    }
+
+    /**
+     * Вычисляет начальную ячейку хеш-таблицы для пары (колонка, хеш значения).
+     *
+     * @param column    Номер колонки.
+     * @param valueHash Хеш значения.
+     * @param mask      Маска размера хеш-таблицы (размер минус один).
+     * @return Номер ячейки.
+     */
+    public static int slot(int column, int valueHash, int mask) {
+        int h = valueHash * 31 + column;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h & mask;
+    }
+}
@@ -19,6 +19,8 @@ import java.io.IOException;
 @RequiredArgsConstructor
 public class ApplicationRunner implements CommandLineRunner {
 
+    private static final String CONVERT_COMMAND = "convert";
+
     private final ProcessingService processingService;
 
     private final AppConfiguration appConfiguration;
@@ -27,12 +29,17 @@ public class ApplicationRunner implements CommandLineRunner {
      * Метод, выполняемый при запуске приложения.
      * <p>
      * Вызывает метод обработки данных, вычисляет время выполнения и используемую память, а затем выводит результаты.
+     * Если первый аргумент — {@value #CONVERT_COMMAND}, входной CSV файл только преобразуется в колоночный формат.
      *
      * @param args Аргументы командной строки.
      * @throws IOException Если произошла ошибка при обработке CSV данных.
      */
     @Override
     public void run(String... args) throws IOException {
+        if (args.length > 0 && CONVERT_COMMAND.equals(args[0])) {
+            convert(args);
+            return;
+        }
         String inputFile = determineInputFile(args);
         long startTime = System.currentTimeMillis();
         ProcessResult result = processingService.processCsvData(inputFile);
@@ -41,6 +48,24 @@ public class ApplicationRunner implements CommandLineRunner {
         processingService.printResults(result.getMultiGroupCount(), durationSeconds, usedMemoryGB);
     }
 
+    /**
+     * Преобразует CSV файл в колоночный формат.
+     * <p>
+     * Ожидает аргументы {@code convert <входной файл> <колоночный файл>}.
+     *
+     * @param args Аргументы командной строки.
+     * @throws IOException Если произошла ошибка при преобразовании.
+     */
+    private void convert(String... args) throws IOException {
+        if (args.length < 3) {
+            throw new IllegalArgumentException("Использование: " + CONVERT_COMMAND + " <входной файл> <колоночный файл>");
+        }
+        long startTime = System.currentTimeMillis();
+        processingService.convertToColumnar(args[1], args[2]);
+        double durationSeconds = processingService.calculateDurationInSeconds(startTime, System.currentTimeMillis());
+        System.out.printf("Файл %s преобразован в %s за %.3f секунд%n", args[1], args[2], durationSeconds);
+    }
+
     /**
      * Определяет путь к входному файлу.
      * <p>
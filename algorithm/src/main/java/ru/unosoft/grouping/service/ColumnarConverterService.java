@@ -0,0 +1,231 @@
+package ru.unosoft.grouping.service;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import ru.unosoft.grouping.columnar.ColumnarFormat;
+import ru.unosoft.grouping.dto.ProcessingPlan;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Сервис для однократного преобразования CSV файла в колоночный формат,
+ * который затем открывается через {@link ru.unosoft.grouping.columnar.ColumnarFile}.
+ * <p>
+ * Файл читается через {@link CsvReaderService#readRecords}, то есть тем же разбором commons-csv, что и
+ * {@link CsvReaderService#readCsv}, поэтому группировка колоночного файла даёт тот же результат, что и группировка
+ * исходного, в том числе для значений в кавычках с переводом строки. Формат описан в {@link ColumnarFormat}.
+ */
+@Service
+@RequiredArgsConstructor
+public class ColumnarConverterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ColumnarConverterService.class);
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private static final int MAX_INITIAL_DICTIONARY_CAPACITY = 1 << 20;
+
+    private final PlanningService planningService;
+
+    private final CsvReaderService csvReaderService;
+
+    /**
+     * Преобразует CSV файл в колоночный файл.
+     *
+     * @param inputFile  Путь к входному CSV файлу.
+     * @param outputFile Путь к колоночному файлу.
+     * @throws IOException Если произошла ошибка при чтении или записи файла.
+     */
+    public void convert(String inputFile, String outputFile) throws IOException {
+        ProcessingPlan plan = planningService.plan(inputFile);
+        Columns columns = new Columns(plan);
+        Set<String> uniqueLines = new HashSet<>(plan.getUniqueLinesCapacity());
+        csvReaderService.readRecords(inputFile, (line, offset, row) ->
+                columns.add(line, offset, !csvReaderService.addIfUnique(line, uniqueLines)));
+        write(columns, outputFile);
+        logger.info("Файл {} преобразован в {}: строк {}, повторяющихся {}, колонок {}",
+                inputFile, outputFile, columns.rowCount, columns.duplicates.cardinality(), columns.values.size());
+    }
+
+    /**
+     * Записывает накопленные колонки в файл.
+     *
+     * @param columns    Накопленные колонки.
+     * @param outputFile Путь к колоночному файлу.
+     * @throws IOException Если произошла ошибка при записи в файл.
+     */
+    private void write(Columns columns, String outputFile) throws IOException {
+        int rowCount = columns.rowCount;
+        int columnCount = columns.values.size();
+        long rowOffsetsOffset = ColumnarFormat.HEADER_SIZE;
+        long valueIdsOffset = rowOffsetsOffset + (long) rowCount * Long.BYTES;
+        long rowWidthsOffset = valueIdsOffset + (long) columnCount * rowCount * Integer.BYTES;
+        long flagsOffset = rowWidthsOffset + (long) rowCount * Integer.BYTES;
+        long dictionariesOffset = flagsOffset + rowCount;
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(Paths.get(outputFile)), BUFFER_SIZE))) {
+            output.writeInt(ColumnarFormat.MAGIC);
+            output.writeInt(ColumnarFormat.VERSION);
+            output.writeInt(rowCount);
+            output.writeInt(columnCount);
+            output.writeLong(rowOffsetsOffset);
+            output.writeLong(valueIdsOffset);
+            output.writeLong(rowWidthsOffset);
+            output.writeLong(flagsOffset);
+            output.writeLong(dictionariesOffset);
+            for (int row = 0; row < rowCount; row++) {
+                output.writeLong(columns.rowOffsets[row]);
+            }
+            for (IntColumn column : columns.values) {
+                column.writeTo(output, rowCount);
+            }
+            columns.rowWidths.writeTo(output, rowCount);
+            for (int row = 0; row < rowCount; row++) {
+                output.writeByte(columns.duplicates.get(row) ? ColumnarFormat.DUPLICATE : 0);
+            }
+            for (List<String> dictionary : columns.dictionaryValues) {
+                output.writeInt(dictionary.size());
+                for (String value : dictionary) {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    output.writeInt(bytes.length);
+                    output.write(bytes);
+                }
+            }
+        }
+    }
+
+    /**
+     * Накопление строк файла по колонкам.
+     * <p>
+     * Колонка, впервые встретившаяся в длинной строке, дополняется нулями для всех предыдущих строк.
+     */
+    private static class Columns {
+
+        private final ProcessingPlan plan;
+
+        private final List<IntColumn> values = new ArrayList<>();
+
+        private final List<Map<String, Integer>> dictionaries = new ArrayList<>();
+
+        private final List<List<String>> dictionaryValues = new ArrayList<>();
+
+        private final IntColumn rowWidths;
+
+        private final BitSet duplicates = new BitSet();
+
+        private long[] rowOffsets;
+
+        private int rowCount;
+
+        private Columns(ProcessingPlan plan) {
+            this.plan = plan;
+            this.rowWidths = new IntColumn(plan.getRowCapacity());
+            this.rowOffsets = new long[plan.getRowCapacity()];
+        }
+
+        /**
+         * Добавляет строку, заменяя значения колонок их номерами в словарях.
+         *
+         * @param line      Значения колонок строки.
+         * @param offset    Смещение начала строки в исходном тексте.
+         * @param duplicate Повторяет ли строка одну из предыдущих.
+         */
+        private void add(String[] line, long offset, boolean duplicate) {
+            while (values.size() < line.length) {
+                addColumn();
+            }
+            for (int column = 0; column < values.size(); column++) {
+                values.get(column).add(column < line.length ? valueId(column, line[column]) : 0);
+            }
+            rowWidths.add(line.length);
+            if (rowCount == rowOffsets.length) rowOffsets = Arrays.copyOf(rowOffsets, Math.max(16, rowCount * 2));
+            rowOffsets[rowCount] = offset;
+            if (duplicate) duplicates.set(rowCount);
+            rowCount++;
+        }
+
+        /**
+         * Добавляет колонку со словарём, размер которого оценён планом обработки.
+         */
+        private void addColumn() {
+            int column = values.size();
+            IntColumn ids = new IntColumn(Math.max(plan.getRowCapacity(), rowCount));
+            for (int row = 0; row < rowCount; row++) {
+                ids.add(0);
+            }
+            values.add(ids);
+            long[] cardinalities = plan.getEstimatedCardinalities();
+            long expected = column < cardinalities.length ? cardinalities[column] : 0;
+            dictionaries.add(new HashMap<>((int) Math.min(expected, MAX_INITIAL_DICTIONARY_CAPACITY)));
+            dictionaryValues.add(new ArrayList<>());
+        }
+
+        /**
+         * Возвращает номер значения в словаре колонки, добавляя новое значение в конец словаря.
+         *
+         * @param column Номер колонки.
+         * @param value  Значение колонки.
+         * @return Номер значения, начиная с единицы, или 0 для пустого значения.
+         */
+        private int valueId(int column, String value) {
+            if (value.isEmpty()) return 0;
+            List<String> dictionary = dictionaryValues.get(column);
+            return dictionaries.get(column).computeIfAbsent(value, v -> {
+                dictionary.add(v);
+                return dictionary.size();
+            });
+        }
+    }
+
+    /**
+     * Расширяемый массив int.
+     */
+    private static class IntColumn {
+
+        private int[] values;
+
+        private int size;
+
+        private IntColumn(int capacity) {
+            values = new int[Math.max(16, capacity)];
+        }
+
+        /**
+         * Добавляет значение в конец массива.
+         *
+         * @param value Значение.
+         */
+        private void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        /**
+         * Записывает первые значения массива.
+         *
+         * @param output Поток записи.
+         * @param count  Количество значений.
+         * @throws IOException Если произошла ошибка при записи.
+         */
+        private void writeTo(DataOutputStream output, int count) throws IOException {
+            for (int i = 0; i < count; i++) {
+                output.writeInt(values[i]);
+            }
+        }
+    }
+}
@@ -5,7 +5,12 @@ import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 import org.springframework.stereotype.Service;
+import ru.unosoft.grouping.dto.ParsedChunk;
+import ru.unosoft.grouping.dto.ProcessingPlan;
+import ru.unosoft.grouping.util.CsvTokenizer;
+import ru.unosoft.grouping.util.LineBreakTracker;
 import ru.unosoft.grouping.util.LineUtil;
+import ru.unosoft.grouping.util.TokenizedChunk;
 
 import java.io.BufferedInputStream;
 import java.io.FileNotFoundException;
@@ -13,10 +18,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
@@ -34,12 +42,16 @@ import java.util.zip.GZIPInputStream;
 @RequiredArgsConstructor
 public class CsvReaderService {
 
-    private static final int INITIAL_CAPACITY = 1_000_000;
-
     private static final String GZ_FILE_FORMAT = ".gz";
 
+    private static final char DELIMITER = ';';
+
+    private static final String[] IRREGULAR_ROW = new String[0];
+
     private final LineUtil lineUtil;
 
+    private final CsvTokenizer csvTokenizer = CsvTokenizer.create();
+
     /**
      * Читает и парсит файл из ресурсов, поддерживает форматы .txt и .txt.gz.
      *
@@ -48,16 +60,54 @@ public class CsvReaderService {
      * @throws IOException Если произошла ошибка при чтении файла.
      */
     public List<String[]> readCsv(String filePath) throws IOException {
-        Set<String> uniqueLines = new HashSet<>(INITIAL_CAPACITY);
+        return readCsv(filePath, ProcessingPlan.defaultPlan());
+    }
+
+    /**
+     * Читает и парсит файл из ресурсов, используя ёмкости структур из плана обработки.
+     *
+     * @param filePath Путь к входному файлу.
+     * @param plan     План обработки с начальными ёмкостями структур.
+     * @return Список массивов строк, каждая из которых представляет отдельную строку файла.
+     * @throws IOException Если произошла ошибка при чтении файла.
+     */
+    public List<String[]> readCsv(String filePath, ProcessingPlan plan) throws IOException {
+        Set<String> uniqueLines = new HashSet<>(plan.getUniqueLinesCapacity());
         try (CSVParser csvParser = createCsvParser(filePath)) {
             return csvParser.stream()
                     .map(this::parseRecord)
                     .filter(this::isValidLine)
                     .filter(lines -> addIfUnique(lines, uniqueLines))
-                    .collect(Collectors.toList());
+                    .collect(Collectors.toCollection(() -> new ArrayList<>(plan.getRowCapacity())));
         }
     }
 
+    /**
+     * Читает файл по тем же правилам, что и {@link #readCsv(String)}, и передаёт каждую валидную запись
+     * вместе с её положением во входном файле.
+     * <p>
+     * Уникальность записей не проверяется. Запись может занимать несколько строк файла, если значение
+     * в кавычках содержит перевод строки, а одиночный {@code \r} делит строку файла на несколько записей.
+     *
+     * @param filePath Путь к входному файлу.
+     * @param handler  Обработчик записей, вызывается в порядке файла.
+     * @return Количество строк файла по переводам строки.
+     * @throws IOException Если произошла ошибка при чтении файла или в обработчике.
+     */
+    public int readRecords(String filePath, RecordHandler handler) throws IOException {
+        LineBreakTracker lineBreaks = new LineBreakTracker();
+        Reader reader = new InputStreamReader(lineBreaks.track(openInputStream(filePath)), StandardCharsets.UTF_8);
+        try (CSVParser csvParser = createCsvParser(lineBreaks.track(reader))) {
+            for (CSVRecord record : csvParser) {
+                String[] line = parseRecord(record);
+                if (!isValidLine(line)) continue;
+                long offset = lineBreaks.recordStart(record.getCharacterPosition());
+                handler.handle(line, offset, lineBreaks.recordLine());
+            }
+        }
+        return lineBreaks.lineCount();
+    }
+
     /**
      * Создаёт CSVParser для заданного файла.
      * <p>
@@ -69,11 +119,308 @@ public class CsvReaderService {
      * @throws IOException Если произошла ошибка при создании CSVParser или при чтении файла.
      */
     private CSVParser createCsvParser(String filePath) throws IOException {
-        InputStream inputStream = getInputStream(filePath);
-        InputStream fileStream = new BufferedInputStream(inputStream);
+        return createCsvParser(openReader(filePath));
+    }
+
+    /**
+     * Открывает Reader для заданного файла.
+     * <p>
+     * Если файл имеет расширение `.txt.gz`, содержимое распаковывается при чтении.
+     *
+     * @param filePath Путь к файлу.
+     * @return Reader для чтения содержимого файла в кодировке UTF-8.
+     * @throws IOException Если произошла ошибка при открытии файла.
+     */
+    public Reader openReader(String filePath) throws IOException {
+        return new InputStreamReader(openInputStream(filePath), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Открывает InputStream для заданного файла.
+     * <p>
+     * Если файл имеет расширение `.txt.gz`, содержимое распаковывается при чтении.
+     *
+     * @param filePath Путь к файлу.
+     * @return InputStream с содержимым файла.
+     * @throws IOException Если произошла ошибка при открытии файла.
+     */
+    public InputStream openInputStream(String filePath) throws IOException {
+        InputStream fileStream = new BufferedInputStream(getInputStream(filePath));
         if (isGzFile(filePath)) fileStream = new GZIPInputStream(fileStream);
-        Reader reader = new InputStreamReader(fileStream, StandardCharsets.UTF_8);
-        return createCsvParser(reader);
+        return fileStream;
+    }
+
+    /**
+     * Парсит участок файла, состоящий из целых строк, и отбрасывает невалидные записи.
+     * <p>
+     * Границы строк и колонок находятся {@link CsvTokenizer} сразу для всего участка. Значения без кавычек
+     * и значения, целиком заключённые в кавычки, декодируются напрямую: обрамляющие кавычки снимаются,
+     * удвоенные кавычки заменяются одинарными, пробелы по краям отбрасываются. Строка, в которой кавычки
+     * стоят иначе или есть одиночный {@code \r} вне кавычек, разбирается через commons-csv с теми же
+     * настройками, что и в {@link #readCsv(String)}. Поэтому, например, текст после закрывающей кавычки
+     * так же приводит к ошибке разбора, а одиночный {@code \r} так же делит строку на несколько записей.
+     * <p>
+     * От {@link #readCsv(String)} результат отличается только для значений в кавычках, содержащих перевод
+     * строки: строки разделяются символом {@code \n}, поэтому строка, которая заканчивается внутри значения
+     * в кавычках, отбрасывается, а не продолжается следующей строкой.
+     * Уникальность записей не проверяется: это делается на этапе, обрабатывающем участки по порядку.
+     *
+     * @param chunk  Буфер с текстом в кодировке UTF-8.
+     * @param length Длина участка в буфере.
+     * @return Валидные записи участка и позиции их начала в буфере.
+     * @throws UncheckedIOException Если commons-csv не смог разобрать строку.
+     */
+    public ParsedChunk parseChunk(byte[] chunk, int length) {
+        TokenizedChunk tokens = csvTokenizer.tokenize(chunk, 0, length);
+        List<String[]> lines = new ArrayList<>(tokens.rowCount());
+        int[] rowStarts = new int[tokens.rowCount()];
+        for (int row = 0; row < tokens.rowCount(); row++) {
+            String[] line = decodeRow(chunk, tokens, row);
+            if (line == IRREGULAR_ROW) {
+                ParsedChunk records = parseIrregularRow(chunk, tokens, row);
+                for (int i = 0; i < records.getLines().size(); i++) {
+                    rowStarts = addRow(lines, rowStarts, records.getLines().get(i), records.getRowStarts()[i]);
+                }
+            } else if (line != null) {
+                rowStarts = addRow(lines, rowStarts, line, tokens.rowStart(row));
+            }
+        }
+        return new ParsedChunk(lines, Arrays.copyOf(rowStarts, lines.size()));
+    }
+
+    /**
+     * Добавляет запись участка и позицию её начала, расширяя массив позиций при необходимости.
+     * <p>
+     * Записей бывает больше, чем строк участка, если одиночный {@code \r} делит строку на несколько записей.
+     *
+     * @param lines     Записи участка.
+     * @param rowStarts Позиции начала записей.
+     * @param line      Добавляемая запись.
+     * @param rowStart  Позиция начала записи в буфере.
+     * @return Массив позиций начала записей, возможно новый.
+     */
+    private int[] addRow(List<String[]> lines, int[] rowStarts, String[] line, int rowStart) {
+        if (lines.size() == rowStarts.length) rowStarts = Arrays.copyOf(rowStarts, Math.max(16, rowStarts.length * 2));
+        rowStarts[lines.size()] = rowStart;
+        lines.add(line);
+        return rowStarts;
+    }
+
+    /**
+     * Декодирует колонки строки участка.
+     *
+     * @param chunk  Буфер с текстом.
+     * @param tokens Границы строк и колонок.
+     * @param row    Номер строки.
+     * @return Массив значений колонок, null, если строка невалидна, или {@link #IRREGULAR_ROW},
+     *         если строку нужно разобрать через commons-csv: кавычки стоят не вокруг всего значения
+     *         или вне кавычек есть одиночный {@code \r}.
+     */
+    private String[] decodeRow(byte[] chunk, TokenizedChunk tokens, int row) {
+        int first = tokens.firstField(row);
+        String[] line = new String[tokens.firstField(row + 1) - first];
+        boolean valid = true;
+        for (int col = 0; col < line.length; col++) {
+            int field = first + col;
+            int start = tokens.fieldStart(field);
+            int end = tokens.fieldEnd(field);
+            boolean irregular = tokens.isQuoted(field)
+                    ? !isEnclosed(chunk, start, end)
+                    : hasCarriageReturn(chunk, start, end);
+            if (irregular) return IRREGULAR_ROW;
+            if (!valid) continue;
+            line[col] = decodeField(chunk, start, end);
+            valid = !tokens.isQuoted(field) || isValidColumn(line[col]);
+        }
+        return valid ? line : null;
+    }
+
+    /**
+     * Проверяет, что колонка целиком заключена в кавычки, а кавычки внутри неё удвоены.
+     * <p>
+     * Только для таких колонок границы, найденные {@link CsvTokenizer}, совпадают с разбором commons-csv.
+     * После закрывающей кавычки допускаются пробельные символы, кроме {@code \r}, который commons-csv
+     * считает концом записи. Перед открывающей кавычкой пробельные символы не допускаются.
+     *
+     * @param chunk Буфер с текстом.
+     * @param start Позиция начала колонки.
+     * @param end   Позиция конца колонки.
+     * @return true, если колонка заключена в кавычки; иначе false.
+     */
+    private boolean isEnclosed(byte[] chunk, int start, int end) {
+        while (end > start && chunk[end - 1] >= 0 && Character.isWhitespace(chunk[end - 1])) {
+            if (chunk[end - 1] == '\r') return false;
+            end--;
+        }
+        if (end - start < 2 || chunk[start] != '"' || chunk[end - 1] != '"') return false;
+        for (int i = start + 1; i < end - 1; i++) {
+            if (chunk[i] != '"') continue;
+            if (i + 1 == end - 1 || chunk[i + 1] != '"') return false;
+            i++;
+        }
+        return true;
+    }
+
+    /**
+     * Проверяет, есть ли в колонке без кавычек символ {@code \r}.
+     * <p>
+     * Завершающий {@code \r} перед переводом строки уже отброшен {@link CsvTokenizer}, поэтому оставшийся
+     * {@code \r} одиночный и для commons-csv завершает запись.
+     *
+     * @param chunk Буфер с текстом.
+     * @param start Позиция начала колонки.
+     * @param end   Позиция конца колонки.
+     * @return true, если колонка содержит {@code \r}; иначе false.
+     */
+    private boolean hasCarriageReturn(byte[] chunk, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (chunk[i] == '\r') return true;
+        }
+        return false;
+    }
+
+    /**
+     * Разбирает строку участка через commons-csv и отбрасывает невалидные записи.
+     * <p>
+     * Строка, которая заканчивается внутри значения в кавычках, отбрасывается целиком: commons-csv продолжил бы
+     * значение следующей строкой, а участок уже разделён по переводам строки.
+     *
+     * @param chunk  Буфер с текстом.
+     * @param tokens Границы строк и колонок.
+     * @param row    Номер строки.
+     * @return Валидные записи строки и позиции их начала в буфере.
+     * @throws UncheckedIOException Если commons-csv не смог разобрать строку.
+     */
+    private ParsedChunk parseIrregularRow(byte[] chunk, TokenizedChunk tokens, int row) {
+        int start = tokens.fieldStart(tokens.firstField(row));
+        int end = tokens.fieldEnd(tokens.firstField(row + 1) - 1);
+        String text = new String(chunk, start, end - start, StandardCharsets.UTF_8);
+        List<String[]> lines = new ArrayList<>();
+        int[] rowStarts = new int[1];
+        if (endsInsideQuotes(text)) return new ParsedChunk(lines, new int[0]);
+        try (CSVParser csvParser = createCsvParser(new StringReader(text))) {
+            for (CSVRecord record : csvParser) {
+                String[] line = parseRecord(record);
+                if (!isValidLine(line)) continue;
+                int rowStart = recordStart(chunk, start, end, text, record.getCharacterPosition());
+                rowStarts = addRow(lines, rowStarts, line, rowStart);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new ParsedChunk(lines, Arrays.copyOf(rowStarts, lines.size()));
+    }
+
+    /**
+     * Переводит позицию начала записи в тексте строки в позицию в буфере.
+     * <p>
+     * Строка участка не содержит {@code \n}, поэтому каждая запись, кроме первой, начинается после {@code \r},
+     * а каждому символу {@code \r} текста соответствует байт {@code \r} буфера. Пустые строки, которые
+     * commons-csv пропускает перед записью, пропускаются и здесь.
+     *
+     * @param chunk    Буфер с текстом.
+     * @param start    Позиция начала строки в буфере.
+     * @param end      Позиция конца строки в буфере.
+     * @param text     Текст строки.
+     * @param position Позиция начала записи в тексте строки.
+     * @return Позиция начала записи в буфере.
+     */
+    private int recordStart(byte[] chunk, int start, int end, String text, long position) {
+        int breaks = 0;
+        for (int i = 0; i < position; i++) {
+            if (text.charAt(i) == '\r') breaks++;
+        }
+        int pos = start;
+        for (; breaks > 0; pos++) {
+            if (chunk[pos] == '\r') breaks--;
+        }
+        while (pos < end && chunk[pos] == '\r') pos++;
+        return pos;
+    }
+
+    /**
+     * Проверяет, заканчивается ли строка внутри значения в кавычках по правилам commons-csv.
+     * <p>
+     * Значение считается заключённым в кавычки, только если кавычка стоит первым символом колонки.
+     * Если после закрывающей кавычки идёт не пробельный символ, проверка прекращается: commons-csv
+     * сообщит об ошибке раньше, чем дойдёт до конца строки.
+     *
+     * @param text Текст строки.
+     * @return true, если последнее значение в кавычках не закрыто; иначе false.
+     */
+    private boolean endsInsideQuotes(String text) {
+        int i = 0;
+        while (i < text.length()) {
+            if (text.charAt(i) == '"') {
+                i = closingQuote(text, i + 1);
+                if (i < 0) return true;
+                for (i++; i < text.length() && !isFieldEnd(text.charAt(i)); i++) {
+                    if (!Character.isWhitespace(text.charAt(i))) return false;
+                }
+            } else {
+                while (i < text.length() && !isFieldEnd(text.charAt(i))) i++;
+            }
+            i++;
+        }
+        return false;
+    }
+
+    /**
+     * Находит закрывающую кавычку значения, пропуская удвоенные кавычки.
+     *
+     * @param text Текст строки.
+     * @param from Позиция после открывающей кавычки.
+     * @return Позиция закрывающей кавычки или -1, если значение не закрыто.
+     */
+    private int closingQuote(String text, int from) {
+        for (int i = from; i < text.length(); i++) {
+            if (text.charAt(i) != '"') continue;
+            if (i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                i++;
+                continue;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Проверяет, завершает ли символ колонку вне кавычек.
+     *
+     * @param c Символ.
+     * @return true, если символ — разделитель колонок или перевод строки; иначе false.
+     */
+    private boolean isFieldEnd(char c) {
+        return c == DELIMITER || c == '\r' || c == '\n';
+    }
+
+    /**
+     * Декодирует значение колонки.
+     *
+     * @param chunk Буфер с текстом.
+     * @param start Позиция начала колонки.
+     * @param end   Позиция конца колонки.
+     * @return Значение колонки.
+     */
+    private String decodeField(byte[] chunk, int start, int end) {
+        while (start < end && isSpace(chunk[start])) start++;
+        while (end > start && isSpace(chunk[end - 1])) end--;
+        if (end - start >= 2 && chunk[start] == '"' && chunk[end - 1] == '"') {
+            return new String(chunk, start + 1, end - start - 2, StandardCharsets.UTF_8)
+                    .replace("\"\"", "\"")
+                    .trim();
+        }
+        return new String(chunk, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Проверяет, является ли байт пробельным символом в смысле {@link String#trim()}.
+     *
+     * @param b Байт.
+     * @return true, если байт пробельный; иначе false.
+     */
+    private boolean isSpace(byte b) {
+        return b >= 0 && b <= ' ';
     }
 
     /**
@@ -95,7 +442,7 @@ public class CsvReaderService {
      */
     private CSVParser createCsvParser(Reader reader) throws IOException {
         CSVFormat csvFormat = CSVFormat.DEFAULT.builder()
-                .setDelimiter(';')
+                .setDelimiter(DELIMITER)
                 .setIgnoreEmptyLines(true)
                 .setTrim(true)
                 .build();
@@ -148,8 +495,18 @@ public class CsvReaderService {
      * @return true, если запись валидна; false в противном случае.
      */
     private boolean isValidLine(String[] line) {
-        return Arrays.stream(line)
-                .allMatch(column -> !column.contains("\"") || (column.startsWith("\"") && column.endsWith("\"")));
+        return Arrays.stream(line).allMatch(this::isValidColumn);
+    }
+
+    /**
+     * Проверяет валидность значения колонки.
+     * Значение считается валидным, если оно не содержит кавычек или начинается и заканчивается кавычкой.
+     *
+     * @param column Значение колонки.
+     * @return true, если значение валидно; false в противном случае.
+     */
+    private boolean isValidColumn(String column) {
+        return column.indexOf('"') < 0 || (column.startsWith("\"") && column.endsWith("\""));
     }
 
     /**
@@ -159,8 +516,26 @@ public class CsvReaderService {
      * @param uniqueLines Множество для отслеживания уникальных строк.
      * @return true, если запись уникальна и была добавлена; false в противном случае.
      */
-    private boolean addIfUnique(String[] line, Set<String> uniqueLines) {
+    public boolean addIfUnique(String[] line, Set<String> uniqueLines) {
         String originalLine = lineUtil.buildLine(line);
         return uniqueLines.add(originalLine);
     }
+
+    /**
+     * Обработчик записей, прочитанных {@link #readRecords(String, RecordHandler)}.
+     */
+    @FunctionalInterface
+    public interface RecordHandler {
+
+        /**
+         * Обрабатывает запись.
+         *
+         * @param line   Значения колонок записи.
+         * @param offset Смещение начала записи в байтах от начала файла, для сжатых файлов —
+         *               от начала распакованного текста.
+         * @param row    Номер строки файла, в которой начинается запись, по переводам строки, начиная с нуля.
+         * @throws IOException Если обработка записи не удалась.
+         */
+        void handle(String[] line, long offset, int row) throws IOException;
+    }
 }
\ No newline at end of file
@@ -2,8 +2,11 @@ package ru.unosoft.grouping.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.util.Pair;
+import ru.unosoft.grouping.columnar.ColumnarFile;
+import ru.unosoft.grouping.dto.ProcessingPlan;
+import ru.unosoft.grouping.util.DisjointSet;
 import ru.unosoft.grouping.util.LineUtil;
-import ru.unosoft.grouping.util.UnionFind;
+import ru.unosoft.grouping.util.SizeTrackingDisjointSet;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
@@ -11,7 +14,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.function.IntFunction;
 import java.util.stream.IntStream;
 
 /**
@@ -24,8 +27,6 @@ import java.util.stream.IntStream;
 @RequiredArgsConstructor
 public class GroupingService {
 
-    private static final int INITIAL_CAPACITY = 1_000_000;
-
     private final LineUtil lineUtil;
 
     /**
@@ -35,20 +36,79 @@ public class GroupingService {
      * @return Мапа групп, где ключ — идентификатор группы, а значение — список строк в группе.
      */
     public Map<Integer, List<String>> groupLines(List<String[]> lines) {
-        UnionFind uf = createUnionFind(lines);
+        return groupLines(lines, ProcessingPlan.defaultPlan());
+    }
+
+    /**
+     * Группирует строки, используя ёмкости структур и реализацию системы непересекающихся множеств
+     * из плана обработки.
+     *
+     * @param lines Лист строк, каждая строка представлена массивом значений.
+     * @param plan  План обработки с начальными ёмкостями структур.
+     * @return Мапа групп, где ключ — идентификатор группы, а значение — список строк в группе.
+     */
+    public Map<Integer, List<String>> groupLines(List<String[]> lines, ProcessingPlan plan) {
+        DisjointSet uf = createDisjointSet(lines, plan);
         return createGroups(lines, uf);
     }
 
     /**
-     * Создаёт структуру UnionFind и ассоциирует значения колонок с индексами строк.
+     * Группирует строки колоночного файла без разбора текста.
+     * <p>
+     * Повторяющиеся строки пропускаются, а совпадения значений находятся по идентификаторам из словарей колонок.
+     * Строки обходятся в том же порядке, что и при чтении CSV файла, поэтому результат совпадает с результатом
+     * группировки исходного файла.
+     *
+     * @param file Колоночный файл.
+     * @return Мапа групп, где ключ — идентификатор группы, а значение — список строк в группе.
+     */
+    public Map<Integer, List<String>> groupColumnar(ColumnarFile file) {
+        return groupColumnar(file, ProcessingPlan.defaultPlan());
+    }
+
+    /**
+     * Группирует строки колоночного файла, используя реализацию системы непересекающихся множеств из плана.
+     *
+     * @param file Колоночный файл.
+     * @param plan План обработки.
+     * @return Мапа групп, где ключ — идентификатор группы, а значение — список строк в группе.
+     */
+    public Map<Integer, List<String>> groupColumnar(ColumnarFile file, ProcessingPlan plan) {
+        int[] rows = IntStream.range(0, file.rowCount())
+                .filter(row -> !file.isDuplicate(row))
+                .toArray();
+        DisjointSet uf = plan.getDisjointSetType().create(rows.length);
+        int[][] firstLines = new int[file.columnCount()][];
+        for (int col = 0; col < firstLines.length; col++) {
+            firstLines[col] = new int[file.dictionarySize(col) + 1];
+        }
+        for (int lineIdx = 0; lineIdx < rows.length; lineIdx++) {
+            int width = file.rowWidth(rows[lineIdx]);
+            for (int col = 0; col < width; col++) {
+                int id = file.valueId(col, rows[lineIdx]);
+                if (id == 0) continue;
+                int firstIdx = firstLines[col][id] - 1;
+                if (firstIdx < 0) {
+                    firstLines[col][id] = lineIdx + 1;
+                } else {
+                    uf.union(firstIdx, lineIdx);
+                }
+            }
+        }
+        return collectGroups(rows.length, idx -> lineUtil.buildLine(file.line(rows[idx])), uf);
+    }
+
+    /**
+     * Создаёт систему непересекающихся множеств и ассоциирует значения колонок с индексами строк.
      * Объединяет строки, если их значения совпадают в одной и той же колонке.
      *
      * @param lines Лист строк.
-     * @return Структура UnionFind с объединёнными строками.
+     * @param plan  План обработки с начальной ёмкостью индекса колонок и реализацией системы множеств.
+     * @return Система непересекающихся множеств с объединёнными строками.
      */
-    private UnionFind createUnionFind(List<String[]> lines) {
-        UnionFind uf = new UnionFind(lines.size());
-        Map<Pair<Integer, String>, Integer> columnsToLine = new HashMap<>(INITIAL_CAPACITY);
+    private DisjointSet createDisjointSet(List<String[]> lines, ProcessingPlan plan) {
+        DisjointSet uf = plan.getDisjointSetType().create(lines.size());
+        Map<Pair<Integer, String>, Integer> columnsToLine = new HashMap<>(plan.getColumnIndexCapacity());
         IntStream.range(0, lines.size())
                 .forEach(lineIdx ->
                         associateColumnsWithLine(columnsToLine, lines.get(lineIdx), lineIdx, uf));
@@ -61,10 +121,10 @@ public class GroupingService {
      * @param columnsToLine Мапа, сопоставляющая значения колонок с индексами первых строк.
      * @param line          Текущая строка, представленная массивом значений.
      * @param lineIdx       Индекс текущей строки в списке.
-     * @param uf            Структура UnionFind для объединения строк.
+     * @param uf            Система непересекающихся множеств для объединения строк.
      */
-    private void associateColumnsWithLine(
-            Map<Pair<Integer, String>, Integer> columnsToLine, String[] line, int lineIdx, UnionFind uf
+    public void associateColumnsWithLine(
+            Map<Pair<Integer, String>, Integer> columnsToLine, String[] line, int lineIdx, DisjointSet uf
     ) {
         IntStream.range(0, line.length)
                 .mapToObj(colIdx -> Pair.of(colIdx, line[colIdx]))
@@ -90,19 +150,35 @@ public class GroupingService {
     }
 
     /**
-     * Создаёт группы строк на основе структуры UnionFind.
+     * Создаёт группы строк на основе системы непересекающихся множеств.
      *
      * @param lines Лист строк.
-     * @param uf    Структура UnionFind с объединёнными строками.
+     * @param uf    Система непересекающихся множеств с объединёнными строками.
+     * @return Мапа групп, где ключ — идентификатор группы, а значение — список строк в группе.
+     */
+    public Map<Integer, List<String>> createGroups(List<String[]> lines, DisjointSet uf) {
+        return collectGroups(lines.size(), idx -> lineUtil.buildLine(lines.get(idx)), uf);
+    }
+
+    /**
+     * Собирает строки в группы по корням системы непересекающихся множеств.
+     * <p>
+     * Если реализация хранит размеры групп, список строк каждой группы сразу создаётся нужного размера.
+     *
+     * @param count Количество строк.
+     * @param line  Функция, возвращающая текст строки по её индексу.
+     * @param uf    Система непересекающихся множеств с объединёнными строками.
      * @return Мапа групп, где ключ — идентификатор группы, а значение — список строк в группе.
      */
-    private Map<Integer, List<String>> createGroups(List<String[]> lines, UnionFind uf) {
-        return IntStream.range(0, lines.size())
-                .mapToObj(idx -> Map.entry(uf.find(idx), lineUtil.buildLine(lines.get(idx))))
-                .collect(Collectors.groupingBy(
-                        Map.Entry::getKey,
-                        Collectors.mapping(Map.Entry::getValue, Collectors.toList())
-                ));
+    private Map<Integer, List<String>> collectGroups(int count, IntFunction<String> line, DisjointSet uf) {
+        SizeTrackingDisjointSet sized = uf instanceof SizeTrackingDisjointSet tracking ? tracking : null;
+        Map<Integer, List<String>> groups = new HashMap<>();
+        for (int idx = 0; idx < count; idx++) {
+            groups.computeIfAbsent(uf.find(idx),
+                            root -> sized != null ? new ArrayList<>(sized.groupSize(root)) : new ArrayList<>())
+                    .add(line.apply(idx));
+        }
+        return groups;
     }
 
     /**
@@ -0,0 +1,606 @@
+package ru.unosoft.grouping.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import ru.unosoft.grouping.columnar.ColumnarFile;
+import ru.unosoft.grouping.columnar.ColumnarFormat;
+import ru.unosoft.grouping.index.GroupIndexFormat;
+import ru.unosoft.grouping.util.LineUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сервис для записи бинарного индекса групп, который затем открывается через
+ * {@link ru.unosoft.grouping.index.GroupIndex}.
+ * <p>
+ * Группы и их строки записываются в порядке выходного файла. Чтобы номер группы можно было узнать
+ * по номеру строки входного файла, после записи групп входной файл читается ещё раз тем же разбором,
+ * что и при группировке: каждая валидная запись сопоставляется с группой по тексту, а для строк групп
+ * запоминается смещение их первого появления. Значения колонок индексируются по разобранной записи,
+ * а не по тексту строки группы, в котором значение с точкой с запятой неотличимо от границы колонок,
+ * поэтому вместе с текстом записываются границы колонок.
+ * Формат описан в {@link GroupIndexFormat}.
+ */
+@Service
+@RequiredArgsConstructor
+public class IndexWriterService {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private static final int MIN_SLOT_COUNT = 16;
+
+    private static final int NO_GROUP = -1;
+
+    private static final int NO_MEMBER = -1;
+
+    private final LineUtil lineUtil;
+
+    private final CsvReaderService csvReaderService;
+
+    /**
+     * Записывает индекс групп в файл.
+     *
+     * @param sortedGroups Отсортированный список групп, где каждая группа представлена
+     *                     как пара из идентификатора группы и списка строк.
+     * @param inputFile    Путь к входному CSV или колоночному файлу, из которого получены группы.
+     * @param indexFile    Путь к файлу индекса.
+     * @throws IOException Если произошла ошибка при чтении входного файла или записи индекса.
+     */
+    public void writeIndex(
+            List<Map.Entry<Integer, List<String>>> sortedGroups, String inputFile, String indexFile
+    ) throws IOException {
+        int groupCount = sortedGroups.size();
+        int memberCount = sortedGroups.stream().mapToInt(entry -> entry.getValue().size()).sum();
+        long groupStartsOffset = GroupIndexFormat.HEADER_SIZE;
+        long memberOffsetsOffset = groupStartsOffset + (groupCount + 1L) * Integer.BYTES;
+        long textOffsetsOffset = memberOffsetsOffset + (long) memberCount * Long.BYTES;
+        long textOffset = textOffsetsOffset + (memberCount + 1L) * Long.BYTES;
+        SlotTable slots = new SlotTable(memberCount);
+        Members members = new Members(memberCount);
+        try (FileChannel channel = FileChannel.open(Paths.get(indexFile), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            SectionWriter groupStarts = new SectionWriter(channel, groupStartsOffset);
+            SectionWriter textOffsets = new SectionWriter(channel, textOffsetsOffset);
+            SectionWriter text = new SectionWriter(channel, textOffset);
+            long textSize = 0;
+            int member = 0;
+            for (int group = 0; group < groupCount; group++) {
+                groupStarts.putInt(member);
+                for (String line : sortedGroups.get(group).getValue()) {
+                    byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+                    textOffsets.putLong(textSize);
+                    text.put(bytes);
+                    textSize += bytes.length;
+                    members.add(line, group, member++);
+                }
+            }
+            groupStarts.putInt(member);
+            textOffsets.putLong(textSize);
+            for (SectionWriter section : List.of(groupStarts, textOffsets, text)) {
+                section.flush();
+            }
+            long rowGroupsOffset = textOffset + textSize;
+            SectionWriter rowGroups = new SectionWriter(channel, rowGroupsOffset);
+            int rowCount = inputFile.endsWith(ColumnarFormat.FILE_EXTENSION)
+                    ? mapColumnarRows(inputFile, members, slots, rowGroups)
+                    : mapCsvRows(inputFile, members, slots, rowGroups);
+            rowGroups.flush();
+            writeLongs(channel, memberOffsetsOffset, members.offsets);
+            long slotColumnsOffset = rowGroupsOffset + (long) rowCount * Integer.BYTES;
+            long slotBytes = (long) slots.columns.length * Integer.BYTES;
+            writeInts(channel, slotColumnsOffset, slots.columns);
+            writeInts(channel, slotColumnsOffset + slotBytes, slots.hashes);
+            writeInts(channel, slotColumnsOffset + 2 * slotBytes, slots.rows);
+            long memberColumnsOffset = slotColumnsOffset + 3 * slotBytes;
+            long columnEndsOffset = memberColumnsOffset + (memberCount + 1L) * Integer.BYTES;
+            writeColumns(channel, members, memberColumnsOffset, columnEndsOffset);
+            writeHeader(channel, groupCount, rowCount, memberCount, slots.columns.length, groupStartsOffset,
+                    memberOffsetsOffset, textOffsetsOffset, textOffset, rowGroupsOffset, slotColumnsOffset, slotBytes,
+                    memberColumnsOffset, columnEndsOffset);
+        }
+    }
+
+    /**
+     * Сопоставляет строки входного CSV файла с группами.
+     * <p>
+     * Записи читаются {@link CsvReaderService#readRecords}, то есть так же, как при группировке.
+     * Строки нумеруются по переводам строки, и группа записывается для строки, в которой начинается запись.
+     * Пустые и невалидные строки, а также продолжения записей со значениями в кавычках, содержащими перевод
+     * строки, получают номер, но не получают группу. Если одиночный {@code \r} делит строку на несколько
+     * записей, строка получает группу первой из них. Смещения считаются в байтах от начала файла,
+     * для сжатых файлов — от начала распакованного текста.
+     *
+     * @param inputFile Путь к входному CSV файлу.
+     * @param members   Строки групп.
+     * @param slots     Хеш-таблица значений колонок.
+     * @param rowGroups Секция номеров групп строк входного файла.
+     * @return Количество строк входного файла.
+     * @throws IOException Если произошла ошибка при чтении входного файла или записи индекса.
+     */
+    private int mapCsvRows(
+            String inputFile, Members members, SlotTable slots, SectionWriter rowGroups
+    ) throws IOException {
+        RowGroups rows = new RowGroups(rowGroups);
+        int rowCount = csvReaderService.readRecords(inputFile,
+                (line, offset, row) -> rows.put(row, mapRow(members, slots, line, offset)));
+        rows.fill(rowCount);
+        return rowCount;
+    }
+
+    /**
+     * Сопоставляет строки колоночного файла с группами.
+     * <p>
+     * Строки нумеруются так же, как в колоночном файле, а смещения берутся из него и указывают
+     * на начало строки в исходном CSV файле.
+     *
+     * @param inputFile Путь к колоночному файлу.
+     * @param members   Строки групп.
+     * @param slots     Хеш-таблица значений колонок.
+     * @param rowGroups Секция номеров групп строк входного файла.
+     * @return Количество строк колоночного файла.
+     * @throws IOException Если произошла ошибка при чтении входного файла или записи индекса.
+     */
+    private int mapColumnarRows(
+            String inputFile, Members members, SlotTable slots, SectionWriter rowGroups
+    ) throws IOException {
+        ColumnarFile file = ColumnarFile.open(Paths.get(inputFile));
+        for (int row = 0; row < file.rowCount(); row++) {
+            rowGroups.putInt(mapRow(members, slots, file.line(row), file.rowOffset(row)));
+        }
+        return file.rowCount();
+    }
+
+    /**
+     * Сопоставляет запись входного файла с группой.
+     * <p>
+     * При первом появлении строки группы запоминаются её смещение и границы колонок,
+     * а значения колонок добавляются в хеш-таблицу.
+     *
+     * @param members Строки групп.
+     * @param slots   Хеш-таблица значений колонок.
+     * @param line    Значения колонок записи.
+     * @param offset  Смещение начала записи во входном файле.
+     * @return Номер группы, начиная с нуля, или {@link #NO_GROUP}, если запись не входит в группы.
+     */
+    private int mapRow(Members members, SlotTable slots, String[] line, long offset) {
+        int member = members.find(lineUtil.buildLine(line));
+        if (member == NO_MEMBER) return NO_GROUP;
+        int group = members.groups[member];
+        if (members.offsets[member] == GroupIndexFormat.NO_OFFSET) {
+            members.setRow(member, line, offset);
+            indexValues(slots, line, group, member);
+        }
+        return group;
+    }
+
+    /**
+     * Добавляет непустые значения колонок строки в хеш-таблицу.
+     *
+     * @param slots  Хеш-таблица.
+     * @param line   Значения колонок строки.
+     * @param group  Номер группы строки, начиная с нуля.
+     * @param member Номер строки в порядке выходного файла.
+     */
+    private void indexValues(SlotTable slots, String[] line, int group, int member) {
+        for (int column = 0; column < line.length; column++) {
+            if (!line[column].isEmpty()) slots.add(column, line[column].hashCode(), group, member);
+        }
+    }
+
+    /**
+     * Записывает границы колонок строк групп в порядке выходного файла.
+     *
+     * @param channel             Канал файла.
+     * @param members             Строки групп.
+     * @param memberColumnsOffset Смещение секции начал границ колонок строк групп.
+     * @param columnEndsOffset    Смещение секции границ колонок.
+     * @throws IOException Если произошла ошибка при записи.
+     */
+    private void writeColumns(
+            FileChannel channel, Members members, long memberColumnsOffset, long columnEndsOffset
+    ) throws IOException {
+        SectionWriter memberColumns = new SectionWriter(channel, memberColumnsOffset);
+        SectionWriter columnEnds = new SectionWriter(channel, columnEndsOffset);
+        int columnCount = 0;
+        for (int member = 0; member < members.groups.length; member++) {
+            memberColumns.putInt(columnCount);
+            int first = members.firstColumns[member];
+            for (int column = 0; column < members.columnCounts[member]; column++) {
+                columnEnds.putInt(members.columnEnds[first + column]);
+            }
+            columnCount += members.columnCounts[member];
+        }
+        memberColumns.putInt(columnCount);
+        memberColumns.flush();
+        columnEnds.flush();
+    }
+
+    /**
+     * Записывает заголовок индекса.
+     *
+     * @param channel             Канал файла.
+     * @param groupCount          Количество групп.
+     * @param rowCount            Количество строк входного файла.
+     * @param memberCount         Количество строк групп.
+     * @param slotCount           Размер хеш-таблицы.
+     * @param groupStartsOffset   Смещение секции начал групп.
+     * @param memberOffsetsOffset Смещение секции смещений строк групп во входном файле.
+     * @param textOffsetsOffset   Смещение секции смещений текста.
+     * @param textOffset          Смещение секции текста.
+     * @param rowGroupsOffset     Смещение секции номеров групп строк входного файла.
+     * @param slotColumnsOffset   Смещение первой секции хеш-таблицы.
+     * @param slotBytes           Размер одной секции хеш-таблицы в байтах.
+     * @param memberColumnsOffset Смещение секции начал границ колонок строк групп.
+     * @param columnEndsOffset    Смещение секции границ колонок.
+     * @throws IOException Если произошла ошибка при записи.
+     */
+    private void writeHeader(
+            FileChannel channel, int groupCount, int rowCount, int memberCount, int slotCount,
+            long groupStartsOffset, long memberOffsetsOffset, long textOffsetsOffset, long textOffset,
+            long rowGroupsOffset, long slotColumnsOffset, long slotBytes, long memberColumnsOffset,
+            long columnEndsOffset
+    ) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(GroupIndexFormat.HEADER_SIZE)
+                .putInt(GroupIndexFormat.MAGIC)
+                .putInt(GroupIndexFormat.VERSION)
+                .putInt(groupCount)
+                .putInt(rowCount)
+                .putInt(memberCount)
+                .putInt(slotCount)
+                .putLong(groupStartsOffset)
+                .putLong(memberOffsetsOffset)
+                .putLong(textOffsetsOffset)
+                .putLong(textOffset)
+                .putLong(rowGroupsOffset)
+                .putLong(slotColumnsOffset)
+                .putLong(slotColumnsOffset + slotBytes)
+                .putLong(slotColumnsOffset + 2 * slotBytes)
+                .putLong(memberColumnsOffset)
+                .putLong(columnEndsOffset)
+                .flip();
+        writeFully(channel, header, 0);
+    }
+
+    /**
+     * Записывает массив int в файл с заданной позиции.
+     *
+     * @param channel  Канал файла.
+     * @param position Позиция в файле.
+     * @param values   Массив значений.
+     * @throws IOException Если произошла ошибка при записи.
+     */
+    private void writeInts(FileChannel channel, long position, int[] values) throws IOException {
+        SectionWriter section = new SectionWriter(channel, position);
+        for (int value : values) {
+            section.putInt(value);
+        }
+        section.flush();
+    }
+
+    /**
+     * Записывает массив long в файл с заданной позиции.
+     *
+     * @param channel  Канал файла.
+     * @param position Позиция в файле.
+     * @param values   Массив значений.
+     * @throws IOException Если произошла ошибка при записи.
+     */
+    private void writeLongs(FileChannel channel, long position, long[] values) throws IOException {
+        SectionWriter section = new SectionWriter(channel, position);
+        for (long value : values) {
+            section.putLong(value);
+        }
+        section.flush();
+    }
+
+    /**
+     * Записывает буфер в файл целиком с заданной позиции.
+     *
+     * @param channel  Канал файла.
+     * @param buffer   Буфер для записи.
+     * @param position Позиция в файле.
+     * @throws IOException Если произошла ошибка при записи.
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Буферизованная запись секции индекса с заданной позиции файла.
+     */
+    private static class SectionWriter {
+
+        private final FileChannel channel;
+
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        private long position;
+
+        private SectionWriter(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        /**
+         * Добавляет int в секцию.
+         *
+         * @param value Значение.
+         * @throws IOException Если произошла ошибка при записи.
+         */
+        private void putInt(int value) throws IOException {
+            ensureRemaining(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        /**
+         * Добавляет long в секцию.
+         *
+         * @param value Значение.
+         * @throws IOException Если произошла ошибка при записи.
+         */
+        private void putLong(long value) throws IOException {
+            ensureRemaining(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        /**
+         * Добавляет массив байт в секцию частями по размеру буфера.
+         *
+         * @param bytes Байты.
+         * @throws IOException Если произошла ошибка при записи.
+         */
+        private void put(byte[] bytes) throws IOException {
+            int written = 0;
+            while (written < bytes.length) {
+                ensureRemaining(1);
+                int n = Math.min(bytes.length - written, buffer.remaining());
+                buffer.put(bytes, written, n);
+                written += n;
+            }
+        }
+
+        /**
+         * Сбрасывает буфер в файл, если в нём не хватает места.
+         *
+         * @param bytes Требуемое место в байтах.
+         * @throws IOException Если произошла ошибка при записи.
+         */
+        private void ensureRemaining(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) flush();
+        }
+
+        /**
+         * Записывает содержимое буфера в файл и сдвигает позицию секции.
+         *
+         * @throws IOException Если произошла ошибка при записи.
+         */
+        private void flush() throws IOException {
+            buffer.flip();
+            long size = buffer.remaining();
+            writeFully(channel, buffer, position);
+            position += size;
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Последовательная запись номеров групп строк входного файла.
+     * <p>
+     * Пропущенные строки получают {@link #NO_GROUP}, а повторная запись для той же строки игнорируется.
+     */
+    private static class RowGroups {
+
+        private final SectionWriter section;
+
+        private int rowCount;
+
+        private RowGroups(SectionWriter section) {
+            this.section = section;
+        }
+
+        /**
+         * Записывает группу строки, если для неё ещё нет записи.
+         *
+         * @param row   Номер строки входного файла.
+         * @param group Номер группы, начиная с нуля, или {@link #NO_GROUP}.
+         * @throws IOException Если произошла ошибка при записи индекса.
+         */
+        private void put(int row, int group) throws IOException {
+            if (row < rowCount) return;
+            fill(row);
+            section.putInt(group);
+            rowCount++;
+        }
+
+        /**
+         * Отмечает строки без записей до заданной строки.
+         *
+         * @param row Номер строки, до которой строки отмечаются (не включительно).
+         * @throws IOException Если произошла ошибка при записи индекса.
+         */
+        private void fill(int row) throws IOException {
+            for (; rowCount < row; rowCount++) {
+                section.putInt(NO_GROUP);
+            }
+        }
+    }
+
+    /**
+     * Строки групп в порядке выходного файла с номерами групп и смещениями во входном файле.
+     * <p>
+     * Повторяющиеся строки входного файла попадают в группу своего первого появления,
+     * а смещение и границы колонок строки группы берутся из этого первого появления.
+     * Границы колонок всех строк хранятся подряд в порядке первого появления.
+     */
+    private static class Members {
+
+        private final Map<String, Integer> positions;
+
+        private final int[] groups;
+
+        private final long[] offsets;
+
+        private final int[] firstColumns;
+
+        private final int[] columnCounts;
+
+        private int[] columnEnds = new int[16];
+
+        private int columnEndCount;
+
+        private Members(int memberCount) {
+            positions = new HashMap<>(PlanningService.toHashCapacity(memberCount));
+            groups = new int[memberCount];
+            offsets = new long[memberCount];
+            firstColumns = new int[memberCount];
+            columnCounts = new int[memberCount];
+            Arrays.fill(offsets, GroupIndexFormat.NO_OFFSET);
+        }
+
+        /**
+         * Добавляет строку группы.
+         *
+         * @param line   Строка в том виде, в котором она записана в выходной файл.
+         * @param group  Номер группы, начиная с нуля.
+         * @param member Номер строки в порядке выходного файла.
+         */
+        private void add(String line, int group, int member) {
+            positions.putIfAbsent(line, member);
+            groups[member] = group;
+        }
+
+        /**
+         * Находит строку группы по тексту.
+         *
+         * @param line Строка в том виде, в котором она записана в выходной файл.
+         * @return Номер строки в порядке выходного файла или {@link #NO_MEMBER}, если строки нет в группах.
+         */
+        private int find(String line) {
+            Integer member = positions.get(line);
+            return member == null ? NO_MEMBER : member;
+        }
+
+        /**
+         * Запоминает смещение первого появления строки группы и концы её колонок в тексте строки.
+         *
+         * @param member Номер строки в порядке выходного файла.
+         * @param line   Значения колонок строки.
+         * @param offset Смещение начала строки во входном файле.
+         */
+        private void setRow(int member, String[] line, long offset) {
+            offsets[member] = offset;
+            firstColumns[member] = columnEndCount;
+            columnCounts[member] = line.length;
+            int end = -1;
+            for (String value : line) {
+                end += 1 + value.getBytes(StandardCharsets.UTF_8).length;
+                if (columnEndCount == columnEnds.length) columnEnds = Arrays.copyOf(columnEnds, columnEndCount * 2);
+                columnEnds[columnEndCount++] = end;
+            }
+        }
+    }
+
+    /**
+     * Хеш-таблица с открытой адресацией для пар (колонка, хеш значения).
+     * <p>
+     * Хранит одну запись на пару и группу: одинаковое значение в колонке встречается только в одной группе,
+     * поэтому несколько записей для одной пары возникают лишь при коллизии хешей разных значений.
+     * Запись указывает на строку группы, в которой значение встретилось первым во входном файле.
+     */
+    private static class SlotTable {
+
+        private int[] columns;
+
+        private int[] hashes;
+
+        private int[] rows;
+
+        private int[] groups;
+
+        private int size;
+
+        private SlotTable(int expectedEntries) {
+            allocate(slotCountFor(expectedEntries));
+        }
+
+        /**
+         * Вычисляет размер хеш-таблицы — степень двойки, при которой доля занятых ячеек не превышает
+         * {@link GroupIndexFormat#MAX_SLOT_LOAD}.
+         *
+         * @param entries Ожидаемое количество записей.
+         * @return Количество ячеек.
+         */
+        private static int slotCountFor(long entries) {
+            long required = (long) (entries / GroupIndexFormat.MAX_SLOT_LOAD) + 1;
+            return (int) Math.max(MIN_SLOT_COUNT, Long.highestOneBit(Math.min(required, 1 << 30) - 1) << 1);
+        }
+
+        /**
+         * Создаёт пустые массивы ячеек.
+         *
+         * @param slotCount Количество ячеек.
+         */
+        private void allocate(int slotCount) {
+            columns = new int[slotCount];
+            hashes = new int[slotCount];
+            rows = new int[slotCount];
+            groups = new int[slotCount];
+        }
+
+        /**
+         * Добавляет запись, если для пары (колонка, хеш значения) и группы её ещё нет.
+         *
+         * @param column Номер колонки.
+         * @param hash   Хеш значения.
+         * @param group  Номер группы, начиная с нуля.
+         * @param row    Номер строки группы в порядке выходного файла.
+         */
+        private void add(int column, int hash, int group, int row) {
+            int mask = columns.length - 1;
+            int slot = GroupIndexFormat.slot(column, hash, mask);
+            while (columns[slot] != 0) {
+                if (columns[slot] == column + 1 && hashes[slot] == hash && groups[slot] == group) return;
+                slot = (slot + 1) & mask;
+            }
+            columns[slot] = column + 1;
+            hashes[slot] = hash;
+            rows[slot] = row;
+            groups[slot] = group;
+            if (++size > columns.length * GroupIndexFormat.MAX_SLOT_LOAD) resize();
+        }
+
+        /**
+         * Удваивает хеш-таблицу и переносит в неё записи.
+         */
+        private void resize() {
+            int[] oldColumns = columns;
+            int[] oldHashes = hashes;
+            int[] oldRows = rows;
+            int[] oldGroups = groups;
+            allocate(oldColumns.length << 1);
+            int mask = columns.length - 1;
+            for (int i = 0; i < oldColumns.length; i++) {
+                if (oldColumns[i] == 0) continue;
+                int slot = GroupIndexFormat.slot(oldColumns[i] - 1, oldHashes[i], mask);
+                while (columns[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                columns[slot] = oldColumns[i];
+                hashes[slot] = oldHashes[i];
+                rows[slot] = oldRows[i];
+                groups[slot] = oldGroups[i];
+            }
+        }
+    }
+}
@@ -4,24 +4,40 @@ import ru.unosoft.grouping.configuration.AppConfiguration;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Сервис для записи результатов группировки в выходной файл.
  * <p>
  * Сохраняет количество групп с более чем одним элементом и детали каждой группы в формате,
  * удобном для последующего анализа.
+ * <p>
+ * Отсортированный список групп делится на диапазоны, которые форматируются в байтовые буферы параллельно.
+ * Номер группы вычисляется по началу её диапазона, а буферы записываются в файл строго по порядку,
+ * поэтому содержимое файла совпадает с последовательной записью.
  */
 @Service
 @RequiredArgsConstructor
 public class OutputWriterService {
 
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
     private final AppConfiguration appConfiguration;
 
     /**
@@ -35,73 +51,165 @@ public class OutputWriterService {
     public void writeOutput(
             List<Map.Entry<Integer, List<String>>> sortedGroups, long multiGroupCount
     ) throws IOException {
-        try (BufferedWriter writer = createBufferedWriter(appConfiguration.getOutputFile())) {
-            writeHeader(writer, multiGroupCount);
-            writeGroups(writer, sortedGroups);
+        try (FileChannel channel = createChannel(appConfiguration.getOutputFile())) {
+            writeHeader(channel, multiGroupCount);
+            writeGroups(channel, sortedGroups);
         }
     }
 
     /**
-     * Создаёт BufferedWriter для записи в выходной файл.
+     * Открывает канал для записи в выходной файл.
      *
      * @param outputFile Путь к выходному файлу.
-     * @return BufferedWriter для записи данных в файл.
-     * @throws IOException Если произошла ошибка при создании BufferedWriter.
+     * @return Канал для записи данных в файл.
+     * @throws IOException Если произошла ошибка при открытии файла.
      */
-    private BufferedWriter createBufferedWriter(String outputFile) throws IOException {
-        return Files.newBufferedWriter(Paths.get(outputFile), StandardCharsets.UTF_8);
+    private FileChannel createChannel(String outputFile) throws IOException {
+        return FileChannel.open(Paths.get(outputFile), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
     }
 
     /**
      * Записывает заголовок в файл, включая общее количество групп с более чем одним элементом.
      *
-     * @param writer          BufferedWriter для записи данных.
+     * @param channel         Канал для записи данных.
      * @param multiGroupCount Количество групп с более чем одним элементом.
      * @throws IOException Если произошла ошибка при записи в файл.
      */
-    private void writeHeader(BufferedWriter writer, long multiGroupCount) throws IOException {
-        writer.write("Количество групп с более чем одним элементом: " + multiGroupCount);
-        writer.newLine();
-        writer.newLine();
+    private void writeHeader(FileChannel channel, long multiGroupCount) throws IOException {
+        String header = "Количество групп с более чем одним элементом: " + multiGroupCount
+                + LINE_SEPARATOR + LINE_SEPARATOR;
+        writeFully(channel, ByteBuffer.wrap(header.getBytes(StandardCharsets.UTF_8)));
     }
 
     /**
      * Записывает все группы в файл.
      * <p>
      * Группы записываются в порядке, начиная с группы 1, и каждая группа отделяется пустой строкой.
+     * Одновременно форматируется не больше диапазонов, чем вдвое превышает количество потоков,
+     * чтобы отформатированные, но ещё не записанные буферы не занимали лишнюю память.
      *
-     * @param writer       BufferedWriter для записи данных.
+     * @param channel      Канал для записи данных.
      * @param sortedGroups Отсортированный список групп для записи.
      * @throws IOException Если произошла ошибка при записи в файл.
      */
     private void writeGroups(
-            BufferedWriter writer, List<Map.Entry<Integer, List<String>>> sortedGroups
+            FileChannel channel, List<Map.Entry<Integer, List<String>>> sortedGroups
     ) throws IOException {
-        int groupNumber = 1;
-        for (Map.Entry<Integer, List<String>> entry : sortedGroups) {
-            writeGroup(writer, entry, groupNumber++);
+        List<Integer> rangeStarts = splitIntoRanges(sortedGroups);
+        int parallelism = Math.max(1, Math.min(appConfiguration.getOutputParallelism(), rangeStarts.size() - 1));
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, createThreadFactory());
+        try {
+            Deque<CompletableFuture<ByteBuffer>> window = new ArrayDeque<>();
+            int nextRange = 0;
+            while (nextRange < rangeStarts.size() - 1 || !window.isEmpty()) {
+                while (nextRange < rangeStarts.size() - 1 && window.size() < 2 * parallelism) {
+                    int start = rangeStarts.get(nextRange);
+                    int end = rangeStarts.get(++nextRange);
+                    window.add(CompletableFuture.supplyAsync(
+                            () -> serializeRange(sortedGroups, start, end), executor));
+                }
+                writeFully(channel, await(window.poll()));
+            }
+        } finally {
+            executor.shutdownNow();
         }
     }
 
     /**
-     * Записывает одну группу в файл.
+     * Делит список групп на диапазоны с примерно одинаковым количеством строк вывода.
+     *
+     * @param sortedGroups Отсортированный список групп.
+     * @return Индексы начала диапазонов, последним элементом идёт размер списка.
+     */
+    private List<Integer> splitIntoRanges(List<Map.Entry<Integer, List<String>>> sortedGroups) {
+        int rangeLines = Math.max(1, appConfiguration.getOutputRangeLines());
+        List<Integer> rangeStarts = new ArrayList<>();
+        rangeStarts.add(0);
+        long lines = 0;
+        for (int i = 0; i < sortedGroups.size(); i++) {
+            lines += sortedGroups.get(i).getValue().size() + 2;
+            if (lines >= rangeLines && i + 1 < sortedGroups.size()) {
+                rangeStarts.add(i + 1);
+                lines = 0;
+            }
+        }
+        if (!sortedGroups.isEmpty()) rangeStarts.add(sortedGroups.size());
+        return rangeStarts;
+    }
+
+    /**
+     * Форматирует диапазон групп в байтовый буфер.
+     *
+     * @param sortedGroups Отсортированный список групп.
+     * @param start        Индекс первой группы диапазона.
+     * @param end          Индекс, следующий за последней группой диапазона.
+     * @return Буфер с текстом групп в кодировке UTF-8.
+     */
+    private ByteBuffer serializeRange(List<Map.Entry<Integer, List<String>>> sortedGroups, int start, int end) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = start; i < end; i++) {
+            appendGroup(builder, sortedGroups.get(i), i + 1);
+        }
+        return ByteBuffer.wrap(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Форматирует одну группу.
      * <p>
      * Формат записи: "Группа {номер}", затем список строк группы, каждая строка с новой строки.
      *
-     * @param writer      BufferedWriter для записи данных.
+     * @param builder     Буфер для текста группы.
      * @param entry       Запись группы, содержащая идентификатор и список строк.
      * @param groupNumber Номер группы для отображения в файле.
-     * @throws IOException Если произошла ошибка при записи в файл.
      */
-    private void writeGroup(
-            BufferedWriter writer, Map.Entry<Integer, List<String>> entry, int groupNumber
-    ) throws IOException {
-        writer.write("Группа " + groupNumber);
-        writer.newLine();
+    private void appendGroup(StringBuilder builder, Map.Entry<Integer, List<String>> entry, int groupNumber) {
+        builder.append("Группа ").append(groupNumber).append(LINE_SEPARATOR);
         for (String line : entry.getValue()) {
-            writer.write(line);
-            writer.newLine();
+            builder.append(line).append(LINE_SEPARATOR);
         }
-        writer.newLine();
+        builder.append(LINE_SEPARATOR);
+    }
+
+    /**
+     * Дожидается форматирования диапазона групп.
+     *
+     * @param serialized Ожидаемый буфер диапазона.
+     * @return Буфер с текстом групп.
+     */
+    private ByteBuffer await(CompletableFuture<ByteBuffer> serialized) {
+        try {
+            return serialized.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw e;
+        }
+    }
+
+    /**
+     * Записывает буфер в конец файла целиком.
+     *
+     * @param channel Канал файла.
+     * @param buffer  Буфер для записи.
+     * @throws IOException Если произошла ошибка при записи.
+     */
+    private void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Создаёт фабрику потоков форматирования.
+     *
+     * @return Фабрика daemon-потоков с именами для логов.
+     */
+    private ThreadFactory createThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "output-serialize-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
     }
 }
@@ -0,0 +1,346 @@
+package ru.unosoft.grouping.service;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.util.Pair;
+import org.springframework.stereotype.Service;
+import ru.unosoft.grouping.configuration.AppConfiguration;
+import ru.unosoft.grouping.dto.ProcessingPlan;
+import ru.unosoft.grouping.util.ChunkReader;
+import ru.unosoft.grouping.util.DisjointSet;
+import ru.unosoft.grouping.util.StageMetrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Сервис для группировки строк в виде конвейера из этапов чтения, разбора и группировки.
+ * <p>
+ * Этапы работают одновременно и обмениваются пакетами строк через ограниченные очереди:
+ * пока разбирается пакет N+1, пакет N индексируется и объединяется. Заполненная очередь блокирует
+ * этап-поставщик, поэтому объём данных в памяти между этапами ограничен. Чтение и группировка
+ * выполняются в одном потоке каждый, так как читают один поток данных и изменяют общий индекс,
+ * а разбор выполняется пулом потоков. Пакеты передаются на группировку в порядке чтения.
+ * <p>
+ * Файл читается участками байт, обрезанными по переводу строки, и разбирается
+ * {@link CsvReaderService#parseChunk}, поэтому результат совпадает с последовательной обработкой
+ * через {@link CsvReaderService#readCsv}, кроме значений в кавычках, содержащих перевод строки: такое значение
+ * не склеивается в одну запись, строка, которая заканчивается внутри кавычек, отбрасывается,
+ * а продолжение разбирается как отдельная строка.
+ * Поэтому конвейер по умолчанию выключен и включается параметром {@code app.pipeline.enabled}.
+ */
+@Service
+@RequiredArgsConstructor
+public class PipelineService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PipelineService.class);
+
+    private static final CompletableFuture<List<String[]>> END_OF_INPUT = CompletableFuture.completedFuture(List.of());
+
+    private static final double BOTTLENECK_FILL = 0.5;
+
+    private static final double BOTTLENECK_WAIT_SHARE = 0.5;
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private final AppConfiguration appConfiguration;
+
+    private final CsvReaderService csvReaderService;
+
+    private final GroupingService groupingService;
+
+    /**
+     * Читает файл и группирует его строки конвейером.
+     *
+     * @param inputFile Путь к входному файлу.
+     * @param plan      План обработки с начальными ёмкостями структур.
+     * @return Мапа групп, где ключ — идентификатор группы, а значение — список строк в группе.
+     * @throws IOException Если произошла ошибка при чтении или разборе файла.
+     */
+    public Map<Integer, List<String>> groupLines(String inputFile, ProcessingPlan plan) throws IOException {
+        StageMetrics parseMetrics = new StageMetrics(
+                "Очередь разбора", appConfiguration.getPipelineParseQueueDepth());
+        StageMetrics groupMetrics = new StageMetrics(
+                "Очередь группировки", appConfiguration.getPipelineGroupQueueDepth());
+        BlockingQueue<CompletableFuture<List<String[]>>> groupQueue =
+                new ArrayBlockingQueue<>(appConfiguration.getPipelineGroupQueueDepth());
+        ThreadPoolExecutor parseExecutor = createParseExecutor(parseMetrics);
+        ExecutorService readExecutor = Executors.newSingleThreadExecutor(createThreadFactory("pipeline-read"));
+        try {
+            readExecutor.execute(() -> readBatches(inputFile, parseExecutor, parseMetrics, groupQueue, groupMetrics));
+            long start = System.nanoTime();
+            Map<Integer, List<String>> groups = groupBatches(groupQueue, groupMetrics, plan);
+            logMetrics(parseMetrics, groupMetrics, System.nanoTime() - start);
+            return groups;
+        } finally {
+            readExecutor.shutdownNow();
+            parseExecutor.shutdownNow();
+            awaitTermination(readExecutor);
+            awaitTermination(parseExecutor);
+        }
+    }
+
+    /**
+     * Дожидается остановки потоков этапа после прерывания.
+     * <p>
+     * Если поток группировки был прерван во время ожидания, признак прерывания восстанавливается.
+     *
+     * @param executor Пул потоков этапа.
+     */
+    private void awaitTermination(ExecutorService executor) {
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Потоки конвейера не остановились за {} с", SHUTDOWN_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Создаёт пул потоков этапа разбора с ограниченной очередью.
+     * <p>
+     * Когда очередь заполнена, поставщик блокируется до освобождения места. Время простоя потоков
+     * между задачами учитывается как ожидание потребителя.
+     *
+     * @param parseMetrics Метрики очереди разбора.
+     * @return Пул потоков этапа разбора.
+     */
+    private ThreadPoolExecutor createParseExecutor(StageMetrics parseMetrics) {
+        int parallelism = appConfiguration.getPipelineParseParallelism();
+        ThreadLocal<Long> lastFinished = new ThreadLocal<>();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(appConfiguration.getPipelineParseQueueDepth()),
+                createThreadFactory("pipeline-parse"),
+                (task, pool) -> {
+                    if (pool.isShutdown()) throw new RejectedExecutionException("Этап разбора остановлен");
+                    try {
+                        pool.getQueue().put(task);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException(e);
+                    }
+                }
+        ) {
+            @Override
+            protected void beforeExecute(Thread thread, Runnable task) {
+                Long finished = lastFinished.get();
+                if (finished != null) parseMetrics.recordTake(System.nanoTime() - finished);
+            }
+
+            @Override
+            protected void afterExecute(Runnable task, Throwable ex) {
+                lastFinished.set(System.nanoTime());
+            }
+        };
+        executor.prestartAllCoreThreads();
+        return executor;
+    }
+
+    /**
+     * Создаёт фабрику daemon-потоков с заданным префиксом имени.
+     *
+     * @param prefix Префикс имени потоков.
+     * @return Фабрика потоков.
+     */
+    private ThreadFactory createThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Этап чтения: читает файл участками из целых строк и отправляет их на разбор.
+     * <p>
+     * Результат разбора каждого участка ставится в очередь группировки в порядке чтения.
+     * По окончании файла в очередь ставится признак конца данных, а при ошибке — завершённый с ошибкой пакет.
+     *
+     * @param inputFile     Путь к входному файлу.
+     * @param parseExecutor Пул потоков этапа разбора.
+     * @param parseMetrics  Метрики очереди разбора.
+     * @param groupQueue    Очередь группировки.
+     * @param groupMetrics  Метрики очереди группировки.
+     */
+    private void readBatches(
+            String inputFile, ThreadPoolExecutor parseExecutor, StageMetrics parseMetrics,
+            BlockingQueue<CompletableFuture<List<String[]>>> groupQueue, StageMetrics groupMetrics
+    ) {
+        try (InputStream input = csvReaderService.openInputStream(inputFile)) {
+            ChunkReader chunks = new ChunkReader(input, appConfiguration.getPipelineBatchBytes());
+            while (chunks.next()) {
+                submitBatch(chunks.chunk(), chunks.length(), parseExecutor, parseMetrics, groupQueue, groupMetrics);
+            }
+            put(groupQueue, END_OF_INPUT, groupMetrics);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            try {
+                put(groupQueue, CompletableFuture.failedFuture(e), groupMetrics);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Отправляет участок на разбор и ставит ожидаемый результат в очередь группировки.
+     * <p>
+     * Буфер участка передаётся этапу разбора и после вызова не изменяется.
+     *
+     * @param chunk         Буфер участка.
+     * @param length        Длина участка.
+     * @param parseExecutor Пул потоков этапа разбора.
+     * @param parseMetrics  Метрики очереди разбора.
+     * @param groupQueue    Очередь группировки.
+     * @param groupMetrics  Метрики очереди группировки.
+     * @throws InterruptedException Если поток был прерван во время ожидания места в очереди.
+     */
+    private void submitBatch(
+            byte[] chunk, int length, ThreadPoolExecutor parseExecutor, StageMetrics parseMetrics,
+            BlockingQueue<CompletableFuture<List<String[]>>> groupQueue, StageMetrics groupMetrics
+    ) throws InterruptedException {
+        int occupancy = parseExecutor.getQueue().size();
+        long start = System.nanoTime();
+        CompletableFuture<List<String[]>> parsed = CompletableFuture.supplyAsync(
+                () -> csvReaderService.parseChunk(chunk, length).getLines(), parseExecutor);
+        parseMetrics.recordPut(occupancy, System.nanoTime() - start);
+        put(groupQueue, parsed, groupMetrics);
+    }
+
+    /**
+     * Ставит пакет в очередь, ожидая освобождения места, и учитывает это в метриках.
+     *
+     * @param queue   Очередь.
+     * @param batch   Пакет.
+     * @param metrics Метрики очереди.
+     * @throws InterruptedException Если поток был прерван во время ожидания.
+     */
+    private void put(
+            BlockingQueue<CompletableFuture<List<String[]>>> queue, CompletableFuture<List<String[]>> batch,
+            StageMetrics metrics
+    ) throws InterruptedException {
+        int occupancy = queue.size();
+        long start = System.nanoTime();
+        queue.put(batch);
+        metrics.recordPut(occupancy, System.nanoTime() - start);
+    }
+
+    /**
+     * Этап группировки: по порядку принимает разобранные пакеты, отбрасывает повторяющиеся строки,
+     * индексирует значения колонок и объединяет строки.
+     *
+     * @param groupQueue   Очередь группировки.
+     * @param groupMetrics Метрики очереди группировки.
+     * @param plan         План обработки с начальными ёмкостями структур.
+     * @return Мапа групп, где ключ — идентификатор группы, а значение — список строк в группе.
+     * @throws IOException Если на этапе чтения или разбора произошла ошибка.
+     */
+    private Map<Integer, List<String>> groupBatches(
+            BlockingQueue<CompletableFuture<List<String[]>>> groupQueue, StageMetrics groupMetrics,
+            ProcessingPlan plan
+    ) throws IOException {
+        List<String[]> lines = new ArrayList<>(plan.getRowCapacity());
+        Set<String> uniqueLines = new HashSet<>(plan.getUniqueLinesCapacity());
+        Map<Pair<Integer, String>, Integer> columnsToLine = new HashMap<>(plan.getColumnIndexCapacity());
+        DisjointSet uf = plan.getDisjointSetType().create(plan.getRowCapacity());
+        while (true) {
+            long start = System.nanoTime();
+            CompletableFuture<List<String[]>> parsed = take(groupQueue);
+            groupMetrics.recordTake(System.nanoTime() - start);
+            if (parsed == END_OF_INPUT) break;
+            start = System.nanoTime();
+            List<String[]> batch = await(parsed);
+            groupMetrics.recordResultWait(System.nanoTime() - start);
+            for (String[] line : batch) {
+                if (!csvReaderService.addIfUnique(line, uniqueLines)) continue;
+                int lineIdx = lines.size();
+                lines.add(line);
+                uf.ensureCapacity(lineIdx + 1);
+                groupingService.associateColumnsWithLine(columnsToLine, line, lineIdx, uf);
+            }
+        }
+        return groupingService.createGroups(lines, uf);
+    }
+
+    /**
+     * Забирает следующий пакет из очереди группировки.
+     *
+     * @param groupQueue Очередь группировки.
+     * @return Ожидаемый результат разбора пакета.
+     * @throws InterruptedIOException Если поток был прерван во время ожидания.
+     */
+    private CompletableFuture<List<String[]>> take(
+            BlockingQueue<CompletableFuture<List<String[]>>> groupQueue
+    ) throws InterruptedIOException {
+        try {
+            return groupQueue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Ожидание пакета для группировки прервано");
+        }
+    }
+
+    /**
+     * Дожидается результата разбора пакета.
+     *
+     * @param parsed Ожидаемый результат разбора пакета.
+     * @return Список массивов строк для валидных записей пакета.
+     * @throws IOException Если на этапе чтения или разбора произошла ошибка.
+     */
+    private List<String[]> await(CompletableFuture<List<String[]>> parsed) throws IOException {
+        try {
+            return parsed.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Логирует метрики очередей и этап, ограничивающий скорость конвейера.
+     * <p>
+     * Разбор считается узким местом, если его очередь в среднем заполнена или этап группировки больше половины
+     * времени ждёт готовности уже полученных пакетов. Если этап группировки больше половины времени ждёт
+     * появления пакетов в очереди, узким местом считается чтение, иначе — сама группировка.
+     *
+     * @param parseMetrics  Метрики очереди разбора.
+     * @param groupMetrics  Метрики очереди группировки.
+     * @param elapsedNanos  Время работы этапа группировки.
+     */
+    private void logMetrics(StageMetrics parseMetrics, StageMetrics groupMetrics, long elapsedNanos) {
+        logger.info("{}", parseMetrics.summary());
+        logger.info("{}", groupMetrics.summary());
+        double resultWaitShare = elapsedNanos == 0 ? 0 : (double) groupMetrics.resultWaitNanos() / elapsedNanos;
+        double takeWaitShare = elapsedNanos == 0 ? 0 : (double) groupMetrics.consumerWaitNanos() / elapsedNanos;
+        String bottleneck = parseMetrics.averageFill() >= BOTTLENECK_FILL
+                || resultWaitShare >= BOTTLENECK_WAIT_SHARE ? "разбор"
+                : takeWaitShare >= BOTTLENECK_WAIT_SHARE ? "чтение"
+                : "группировка";
+        logger.info("Узкое место конвейера: {}", bottleneck);
+    }
+}
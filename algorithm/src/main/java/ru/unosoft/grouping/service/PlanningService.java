@@ -0,0 +1,440 @@
+package ru.unosoft.grouping.service;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import ru.unosoft.grouping.configuration.AppConfiguration;
+import ru.unosoft.grouping.dto.ProcessingPlan;
+import ru.unosoft.grouping.dto.ProcessingStrategy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Сервис для планирования обработки по выборке из входного файла.
+ * <p>
+ * Читает начало файла, а для несжатых файлов — ещё несколько участков, равномерно распределённых по файлу.
+ * По выборке оценивает количество строк, колонок и различных значений в каждой колонке,
+ * вычисляет начальные ёмкости структур и выбирает стратегию размещения данных.
+ */
+@Service
+@RequiredArgsConstructor
+public class PlanningService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlanningService.class);
+
+    private static final String GZ_FILE_FORMAT = ".gz";
+
+    private static final int SAMPLE_BLOCK_SIZE = 64 * 1024;
+
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private static final double CAPACITY_MARGIN = 1.1;
+
+    private static final double HEAP_USAGE_LIMIT = 0.7;
+
+    private static final double PHYSICAL_MEMORY_USAGE_LIMIT = 0.7;
+
+    private static final long ROW_OVERHEAD_BYTES = 120;
+
+    private static final long COLUMN_OVERHEAD_BYTES = 64;
+
+    private static final long INDEX_ENTRY_OVERHEAD_BYTES = 100;
+
+    private final AppConfiguration appConfiguration;
+
+    /**
+     * Строит план обработки для заданного файла.
+     * <p>
+     * Если файл отсутствует в файловой системе (например, находится в classpath), пуст или выборку из него
+     * прочитать не удалось, возвращается план по умолчанию: ошибка планирования не прерывает обработку.
+     *
+     * @param filePath Путь к входному файлу.
+     * @return План обработки.
+     */
+    public ProcessingPlan plan(String filePath) {
+        Path path = Paths.get(filePath);
+        long fileSize;
+        Sample sample;
+        try {
+            if (!Files.isRegularFile(path) || Files.size(path) == 0) {
+                logger.info("Файл {} недоступен для выборки, используется план по умолчанию", filePath);
+                return ProcessingPlan.defaultPlan(appConfiguration.getDisjointSet());
+            }
+            fileSize = Files.size(path);
+            sample = isGzFile(filePath) ? sampleCompressed(path) : sampleUncompressed(path, fileSize);
+        } catch (IOException e) {
+            logger.warn("Не удалось сделать выборку из файла {}, используется план по умолчанию: {}",
+                    filePath, e.toString());
+            return ProcessingPlan.defaultPlan(appConfiguration.getDisjointSet());
+        }
+        if (sample.lines.isEmpty()) {
+            logger.info("Выборка из файла {} пуста, используется план по умолчанию", filePath);
+            return ProcessingPlan.defaultPlan(appConfiguration.getDisjointSet());
+        }
+        ProcessingPlan plan = buildPlan(sample, fileSize);
+        logPlan(filePath, fileSize, sample, plan);
+        return plan;
+    }
+
+    /**
+     * Проверяет, является ли файл сжатым.
+     *
+     * @param filePath Путь к файлу.
+     * @return true, если файл сжат; иначе false.
+     */
+    private boolean isGzFile(String filePath) {
+        return filePath.endsWith(GZ_FILE_FORMAT);
+    }
+
+    /**
+     * Делает выборку из начала сжатого файла.
+     * <p>
+     * Помимо строк подсчитывает количество прочитанных сжатых байт, чтобы оценить степень сжатия.
+     *
+     * @param path Путь к файлу.
+     * @return Выборка строк.
+     * @throws IOException Если произошла ошибка при чтении файла.
+     */
+    private Sample sampleCompressed(Path path) throws IOException {
+        Sample sample = new Sample();
+        try (CountingInputStream counting = new CountingInputStream(
+                new BufferedInputStream(Files.newInputStream(path)));
+             BufferedReader reader = new BufferedReader(new InputStreamReader(
+                     new GZIPInputStream(counting), StandardCharsets.UTF_8))) {
+            readLines(reader, appConfiguration.getPlanningSampleLines(), sample);
+            sample.compressedBytes = counting.count;
+        }
+        return sample;
+    }
+
+    /**
+     * Делает выборку из несжатого файла: начало файла и несколько участков, равномерно распределённых по файлу.
+     *
+     * @param path     Путь к файлу.
+     * @param fileSize Размер файла в байтах.
+     * @return Выборка строк.
+     * @throws IOException Если произошла ошибка при чтении файла.
+     */
+    private Sample sampleUncompressed(Path path, long fileSize) throws IOException {
+        Sample sample = new Sample();
+        int points = appConfiguration.getPlanningSamplePoints();
+        int linesPerPoint = Math.max(1, appConfiguration.getPlanningSampleLines() / (points + 1));
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8))) {
+            readLines(reader, linesPerPoint, sample);
+        }
+        if (fileSize <= SAMPLE_BLOCK_SIZE) return sample;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (int point = 1; point <= points; point++) {
+                readBlock(channel, fileSize * point / (points + 1), linesPerPoint, sample);
+            }
+        }
+        return sample;
+    }
+
+    /**
+     * Читает строки из Reader в выборку.
+     *
+     * @param reader   Reader для чтения.
+     * @param maxLines Максимальное количество строк.
+     * @param sample   Выборка для заполнения.
+     * @throws IOException Если произошла ошибка при чтении.
+     */
+    private void readLines(BufferedReader reader, int maxLines, Sample sample) throws IOException {
+        String line;
+        int count = 0;
+        while (count < maxLines && (line = reader.readLine()) != null) {
+            sample.add(line, line.getBytes(StandardCharsets.UTF_8).length + 1);
+            count++;
+        }
+    }
+
+    /**
+     * Читает блок файла с заданной позиции и добавляет в выборку полные строки из него.
+     * <p>
+     * Первая, возможно неполная, строка блока пропускается.
+     *
+     * @param channel  Канал файла.
+     * @param position Позиция начала блока.
+     * @param maxLines Максимальное количество строк.
+     * @param sample   Выборка для заполнения.
+     * @throws IOException Если произошла ошибка при чтении.
+     */
+    private void readBlock(FileChannel channel, long position, int maxLines, Sample sample) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SAMPLE_BLOCK_SIZE);
+        channel.read(buffer, position);
+        byte[] bytes = buffer.array();
+        int limit = buffer.position();
+        int start = indexOfNewLine(bytes, 0, limit) + 1;
+        int count = 0;
+        while (start > 0 && count < maxLines) {
+            int end = indexOfNewLine(bytes, start, limit);
+            if (end < 0) break;
+            sample.add(new String(bytes, start, end - start, StandardCharsets.UTF_8), end - start + 1);
+            start = end + 1;
+            count++;
+        }
+    }
+
+    /**
+     * Находит позицию символа перевода строки в массиве байт.
+     *
+     * @param bytes Массив байт.
+     * @param from  Позиция начала поиска.
+     * @param to    Позиция конца поиска (не включительно).
+     * @return Позиция символа перевода строки или -1, если он не найден.
+     */
+    private int indexOfNewLine(byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == '\n') return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Строит план обработки по выборке.
+     *
+     * @param sample   Выборка строк.
+     * @param fileSize Размер файла в байтах.
+     * @return План обработки.
+     */
+    private ProcessingPlan buildPlan(Sample sample, long fileSize) {
+        double avgLineBytes = (double) sample.lineBytes / sample.lines.size();
+        long uncompressedSize = sample.compressedBytes > 0
+                ? (long) (fileSize * ((double) sample.lineBytes / sample.compressedBytes))
+                : fileSize;
+        long estimatedRows = Math.max(1, (long) (uncompressedSize / avgLineBytes));
+        int columns = sample.columnValues.size();
+        long[] cardinalities = new long[columns];
+        long totalCardinality = 0;
+        for (int col = 0; col < columns; col++) {
+            cardinalities[col] = estimateCardinality(sample.columnValues.get(col), sample.lines.size(), estimatedRows);
+            totalCardinality += cardinalities[col];
+        }
+        long estimatedHeapBytes = (long) (estimatedRows * (avgLineBytes * 2 + ROW_OVERHEAD_BYTES
+                + columns * COLUMN_OVERHEAD_BYTES)) + totalCardinality * INDEX_ENTRY_OVERHEAD_BYTES;
+        long maxHeapBytes = Runtime.getRuntime().maxMemory();
+        ProcessingStrategy strategy = chooseStrategy(estimatedHeapBytes, maxHeapBytes, physicalMemoryBytes());
+        long rowBudget = fitToHeap(estimatedRows, strategy, estimatedHeapBytes, maxHeapBytes);
+        long cardinalityBudget = fitToHeap(totalCardinality, strategy, estimatedHeapBytes, maxHeapBytes);
+        return new ProcessingPlan(
+                estimatedRows,
+                columns,
+                cardinalities,
+                toCapacity(rowBudget),
+                toHashCapacity(rowBudget),
+                toHashCapacity(cardinalityBudget),
+                strategy,
+                appConfiguration.getDisjointSet()
+        );
+    }
+
+    /**
+     * Оценивает количество различных непустых значений в колонке.
+     * <p>
+     * Использует оценку GEE: значения, встретившиеся в выборке один раз, масштабируются на корень из
+     * отношения размера файла к размеру выборки, а повторяющиеся значения учитываются как есть.
+     *
+     * @param valueCounts   Частоты значений колонки в выборке.
+     * @param sampleRows    Количество строк в выборке.
+     * @param estimatedRows Оценка количества строк в файле.
+     * @return Оценка количества различных значений.
+     */
+    public static long estimateCardinality(Map<String, Integer> valueCounts, int sampleRows, long estimatedRows) {
+        long singletons = valueCounts.values().stream().filter(count -> count == 1).count();
+        long repeated = valueCounts.size() - singletons;
+        long nonEmpty = valueCounts.values().stream().mapToLong(Integer::longValue).sum();
+        double scale = Math.sqrt((double) estimatedRows / sampleRows);
+        long estimate = (long) (scale * singletons) + repeated;
+        long upperBound = (long) ((double) nonEmpty / sampleRows * estimatedRows);
+        return Math.max(valueCounts.size(), Math.min(estimate, upperBound));
+    }
+
+    /**
+     * Вычисляет ёмкость списка с запасом.
+     *
+     * @param expected Ожидаемое количество элементов.
+     * @return Ёмкость списка.
+     */
+    public static int toCapacity(long expected) {
+        return (int) Math.min(Integer.MAX_VALUE - 8, (long) (expected * CAPACITY_MARGIN));
+    }
+
+    /**
+     * Вычисляет ёмкость хеш-таблицы, при которой ожидаемое количество элементов не вызовет её расширения.
+     *
+     * @param expected Ожидаемое количество элементов.
+     * @return Ёмкость хеш-таблицы.
+     */
+    public static int toHashCapacity(long expected) {
+        return (int) Math.min(1 << 30, (long) (expected * CAPACITY_MARGIN / LOAD_FACTOR) + 1);
+    }
+
+    /**
+     * Ограничивает ожидаемое количество элементов долей, которая помещается в доступную кучу.
+     * <p>
+     * Для стратегии {@link ProcessingStrategy#IN_MEMORY} количество не меняется. Иначе оно уменьшается
+     * пропорционально отношению допустимого объёма кучи к оценке требуемой памяти, чтобы заранее выделенные
+     * структуры не исчерпали кучу раньше, чем данные будут прочитаны.
+     *
+     * @param expected           Ожидаемое количество элементов.
+     * @param strategy           Выбранная стратегия размещения данных.
+     * @param estimatedHeapBytes Оценка объёма памяти, необходимого для обработки в куче.
+     * @param maxHeapBytes       Максимальный размер кучи.
+     * @return Количество элементов, под которое выделяются структуры.
+     */
+    public static long fitToHeap(
+            long expected, ProcessingStrategy strategy, long estimatedHeapBytes, long maxHeapBytes
+    ) {
+        if (strategy == ProcessingStrategy.IN_MEMORY || estimatedHeapBytes <= 0) return expected;
+        double ratio = Math.min(1.0, maxHeapBytes * HEAP_USAGE_LIMIT / estimatedHeapBytes);
+        return (long) (expected * ratio);
+    }
+
+    /**
+     * Выбирает стратегию размещения данных по оценке требуемой памяти.
+     *
+     * @param estimatedHeapBytes  Оценка объёма памяти, необходимого для обработки в куче.
+     * @param maxHeapBytes        Максимальный размер кучи.
+     * @param physicalMemoryBytes Объём физической памяти или -1, если он неизвестен.
+     * @return Стратегия размещения данных.
+     */
+    public static ProcessingStrategy chooseStrategy(
+            long estimatedHeapBytes, long maxHeapBytes, long physicalMemoryBytes
+    ) {
+        if (estimatedHeapBytes <= maxHeapBytes * HEAP_USAGE_LIMIT) {
+            return ProcessingStrategy.IN_MEMORY;
+        }
+        if (physicalMemoryBytes > 0 && estimatedHeapBytes <= physicalMemoryBytes * PHYSICAL_MEMORY_USAGE_LIMIT) {
+            return ProcessingStrategy.OFF_HEAP;
+        }
+        return ProcessingStrategy.SPILLING;
+    }
+
+    /**
+     * Определяет объём физической памяти.
+     *
+     * @return Объём физической памяти в байтах или -1, если он неизвестен.
+     */
+    private long physicalMemoryBytes() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        return os instanceof com.sun.management.OperatingSystemMXBean osBean ? osBean.getTotalMemorySize() : -1;
+    }
+
+    /**
+     * Логирует принятые при планировании решения.
+     *
+     * @param filePath Путь к входному файлу.
+     * @param fileSize Размер файла в байтах.
+     * @param sample   Выборка строк.
+     * @param plan     Построенный план.
+     */
+    private void logPlan(String filePath, long fileSize, Sample sample, ProcessingPlan plan) {
+        logger.info("План обработки {}: размер файла {} байт, выборка {} строк, оценка строк {}, колонок {}",
+                filePath, fileSize, sample.lines.size(), plan.getEstimatedRows(), plan.getEstimatedColumns());
+        logger.info("Оценка различных значений по колонкам: {}", Arrays.toString(plan.getEstimatedCardinalities()));
+        logger.info("Ёмкости: строки {}, уникальные строки {}, индекс колонок {}",
+                plan.getRowCapacity(), plan.getUniqueLinesCapacity(), plan.getColumnIndexCapacity());
+        if (plan.getStrategy() == ProcessingStrategy.IN_MEMORY) {
+            logger.info("Выбрана стратегия {}", plan.getStrategy());
+        } else {
+            logger.warn("Выбрана стратегия {}, но поддерживается только {}: данные будут обработаны в куче, "
+                            + "начальные ёмкости ограничены доступным объёмом кучи",
+                    plan.getStrategy(), ProcessingStrategy.IN_MEMORY);
+        }
+    }
+
+    /**
+     * Выборка строк из входного файла с частотами значений по колонкам.
+     */
+    private static class Sample {
+
+        private final List<String> lines = new ArrayList<>();
+
+        private final List<Map<String, Integer>> columnValues = new ArrayList<>();
+
+        private long lineBytes;
+
+        private long compressedBytes;
+
+        /**
+         * Добавляет строку в выборку и учитывает значения её колонок.
+         *
+         * @param line  Строка.
+         * @param bytes Размер строки в байтах вместе с переводом строки.
+         */
+        private void add(String line, int bytes) {
+            if (line.isEmpty()) return;
+            lines.add(line);
+            lineBytes += bytes;
+            String[] columns = line.split(";", -1);
+            while (columnValues.size() < columns.length) {
+                columnValues.add(new HashMap<>());
+            }
+            for (int col = 0; col < columns.length; col++) {
+                String value = unquote(columns[col].trim());
+                if (!value.isEmpty()) columnValues.get(col).merge(value, 1, Integer::sum);
+            }
+        }
+
+        /**
+         * Убирает обрамляющие кавычки у значения.
+         *
+         * @param value Значение колонки.
+         * @return Значение без обрамляющих кавычек.
+         */
+        private static String unquote(String value) {
+            if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                return value.substring(1, value.length() - 1).trim();
+            }
+            return value;
+        }
+    }
+
+    /**
+     * InputStream, подсчитывающий количество прочитанных байт.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+}
@@ -1,18 +1,22 @@
 package ru.unosoft.grouping.service;
 
+import ru.unosoft.grouping.columnar.ColumnarFile;
+import ru.unosoft.grouping.columnar.ColumnarFormat;
 import ru.unosoft.grouping.configuration.AppConfiguration;
 import ru.unosoft.grouping.dto.ProcessResult;
+import ru.unosoft.grouping.dto.ProcessingPlan;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Сервис для обработки CSV данных, группировки и записи результатов.
  * <p>
- * Включает этапы чтения, группировки, записи результатов, а также вычисления времени выполнения и использования памяти.
+ * Включает этапы планирования, чтения, группировки, записи результатов, а также вычисления времени выполнения и использования памяти.
  */
 @Service
 @RequiredArgsConstructor
@@ -22,28 +26,72 @@ public class ProcessingService {
 
     private static final double BYTES_IN_GIGABYTE = 1024.0 * 1024.0 * 1024.0;
 
+    private final AppConfiguration appConfiguration;
+
+    private final PlanningService planningService;
+
     private final CsvReaderService csvReaderService;
 
     private final GroupingService groupingService;
 
+    private final PipelineService pipelineService;
+
     private final OutputWriterService outputWriterService;
 
+    private final IndexWriterService indexWriterService;
+
+    private final ColumnarConverterService columnarConverterService;
+
     /**
      * Обрабатывает данные из CSV файла, группирует строки и записывает результаты в файл.
+     * <p>
+     * Если в конфигурации задан путь к индексу групп, дополнительно записывается бинарный индекс для точечных запросов.
+     * Входной файл с расширением {@value ColumnarFormat#FILE_EXTENSION} считается колоночным и группируется без разбора.
      *
-     * @param inputFile Путь к входному CSV файлу.
+     * @param inputFile Путь к входному CSV или колоночному файлу.
      * @return Объект ProcessResult, содержащий количество групп с более чем одним элементом и отсортированные группы.
      * @throws IOException Если произошла ошибка при чтении или записи данных.
      */
     public ProcessResult processCsvData(String inputFile) throws IOException {
-        List<String[]> parsedLines = csvReaderService.readCsv(inputFile);
-        Map<Integer, List<String>> groups = groupingService.groupLines(parsedLines);
+        Map<Integer, List<String>> groups = groupInput(inputFile);
         long multiGroupCount = groupingService.countMultiGroups(groups);
         List<Map.Entry<Integer, List<String>>> sortedGroups = groupingService.sortGroups(groups);
         outputWriterService.writeOutput(sortedGroups, multiGroupCount);
+        if (!appConfiguration.getIndexFile().isEmpty()) {
+            indexWriterService.writeIndex(sortedGroups, inputFile, appConfiguration.getIndexFile());
+        }
         return new ProcessResult(multiGroupCount, sortedGroups);
     }
 
+    /**
+     * Группирует строки входного файла способом, подходящим для его формата и конфигурации.
+     *
+     * @param inputFile Путь к входному CSV или колоночному файлу.
+     * @return Мапа групп, где ключ — идентификатор группы, а значение — список строк в группе.
+     * @throws IOException Если произошла ошибка при чтении данных.
+     */
+    private Map<Integer, List<String>> groupInput(String inputFile) throws IOException {
+        if (inputFile.endsWith(ColumnarFormat.FILE_EXTENSION)) {
+            return groupingService.groupColumnar(ColumnarFile.open(Paths.get(inputFile)),
+                    ProcessingPlan.defaultPlan(appConfiguration.getDisjointSet()));
+        }
+        ProcessingPlan plan = planningService.plan(inputFile);
+        return appConfiguration.isPipelineEnabled()
+                ? pipelineService.groupLines(inputFile, plan)
+                : groupingService.groupLines(csvReaderService.readCsv(inputFile, plan), plan);
+    }
+
+    /**
+     * Преобразует CSV файл в колоночный файл для последующей многократной группировки.
+     *
+     * @param inputFile  Путь к входному CSV файлу.
+     * @param outputFile Путь к колоночному файлу.
+     * @throws IOException Если произошла ошибка при чтении или записи данных.
+     */
+    public void convertToColumnar(String inputFile, String outputFile) throws IOException {
+        columnarConverterService.convert(inputFile, outputFile);
+    }
+
     /**
      * Вычисляет продолжительность выполнения программы в секундах.
      *
@@ -0,0 +1,129 @@
+package ru.unosoft.grouping.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Чтение потока участками из целых строк.
+ * <p>
+ * Участок обрезается по последнему переводу строки, а неполная строка переносится в следующий участок.
+ * Если в участке нет ни одного перевода строки, он расширяется. Каждый участок читается в новый буфер,
+ * поэтому его можно передать другому потоку. Последний участок может не заканчиваться переводом строки.
+ */
+public class ChunkReader {
+
+    private final InputStream input;
+
+    private final int chunkBytes;
+
+    private byte[] buffer;
+
+    private int buffered;
+
+    private boolean endOfInput;
+
+    private byte[] chunk;
+
+    private int length;
+
+    private long offset;
+
+    private long nextOffset;
+
+    /**
+     * Создаёт чтение участками.
+     *
+     * @param input      Поток для чтения.
+     * @param chunkBytes Размер участка в байтах.
+     */
+    public ChunkReader(InputStream input, int chunkBytes) {
+        this.input = input;
+        this.chunkBytes = chunkBytes;
+        this.buffer = new byte[chunkBytes];
+    }
+
+    /**
+     * Читает следующий участок.
+     *
+     * @return true, если участок прочитан; false, если поток закончился.
+     * @throws IOException Если произошла ошибка при чтении.
+     */
+    public boolean next() throws IOException {
+        while (!endOfInput) {
+            buffered += input.readNBytes(buffer, buffered, buffer.length - buffered);
+            if (buffered < buffer.length) {
+                endOfInput = true;
+                if (buffered == 0) return false;
+                emit(buffer, buffered);
+                return true;
+            }
+            int end = lastNewLine(buffer, buffered) + 1;
+            if (end == 0) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                continue;
+            }
+            byte[] next = new byte[Math.max(chunkBytes, 2 * (buffered - end))];
+            System.arraycopy(buffer, end, next, 0, buffered - end);
+            emit(buffer, end);
+            buffer = next;
+            buffered -= end;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Возвращает буфер текущего участка.
+     *
+     * @return Буфер участка.
+     */
+    public byte[] chunk() {
+        return chunk;
+    }
+
+    /**
+     * Возвращает длину текущего участка.
+     *
+     * @return Длина участка в байтах.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Возвращает смещение текущего участка от начала потока.
+     *
+     * @return Смещение участка в байтах.
+     */
+    public long offset() {
+        return offset;
+    }
+
+    /**
+     * Делает текущим участок из начала буфера и сдвигает смещение следующего участка.
+     *
+     * @param bytes Буфер участка.
+     * @param size  Длина участка в байтах.
+     */
+    private void emit(byte[] bytes, int size) {
+        chunk = bytes;
+        length = size;
+        offset = nextOffset;
+        nextOffset += size;
+    }
+
+    /**
+     * Находит позицию последнего перевода строки в буфере.
+     *
+     * @param bytes Буфер.
+     * @param size  Количество байт в буфере.
+     * @return Позиция перевода строки или -1, если он не найден.
+     */
+    private static int lastNewLine(byte[] bytes, int size) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (bytes[i] == '\n') return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,254 @@
+package ru.unosoft.grouping.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Разбиение буфера CSV на строки и колонки.
+ * <p>
+ * Сначала {@link DelimiterScanner} за один проход отмечает в битовых картах все разделители, кавычки и переводы
+ * строк. Затем карты обрабатываются по 64 байта: префиксный XOR карты кавычек даёт маску байтов внутри кавычек,
+ * и разделители внутри кавычек отбрасываются без побайтового разбора. Перевод строки всегда завершает строку
+ * и сбрасывает состояние кавычек, поэтому значения с переводом строки внутри кавычек не поддерживаются;
+ * слова карты с такими переводами строки разбираются по отдельным битам. Пустые строки пропускаются,
+ * завершающий {@code \r} отбрасывается. Экземпляр потокобезопасен.
+ */
+public class CsvTokenizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(CsvTokenizer.class);
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private final DelimiterScanner scanner;
+
+    /**
+     * Создаёт разбиение с заданным поиском структурных символов.
+     *
+     * @param scanner Поиск структурных символов.
+     */
+    public CsvTokenizer(DelimiterScanner scanner) {
+        this.scanner = scanner;
+    }
+
+    /**
+     * Создаёт разбиение с векторным поиском, если модуль jdk.incubator.vector подключён
+     * (JVM запущена с {@code --add-modules jdk.incubator.vector}), иначе — с побайтовым.
+     *
+     * @return Разбиение CSV.
+     */
+    public static CsvTokenizer create() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            logger.info("Поиск разделителей CSV использует Vector API, {} байт за итерацию",
+                    VectorDelimiterScanner.vectorLength());
+            return new CsvTokenizer(new VectorDelimiterScanner());
+        }
+        logger.info("Модуль {} не подключён, поиск разделителей CSV выполняется побайтово", VECTOR_MODULE);
+        return new CsvTokenizer(new ScalarDelimiterScanner());
+    }
+
+    /**
+     * Находит границы строк и колонок в участке буфера.
+     * <p>
+     * Последняя строка участка может не заканчиваться переводом строки.
+     *
+     * @param buffer Буфер с текстом в кодировке UTF-8.
+     * @param from   Позиция начала участка.
+     * @param to     Позиция конца участка (не включительно).
+     * @return Границы строк и колонок.
+     */
+    public TokenizedChunk tokenize(byte[] buffer, int from, int to) {
+        int words = (to - from + 63) >>> 6;
+        long[] delimiters = new long[words];
+        long[] quotes = new long[words];
+        long[] newLines = new long[words];
+        scanner.scan(buffer, from, to, delimiters, quotes, newLines);
+        int delimiterCount = 0;
+        int newLineCount = 0;
+        for (int word = 0; word < words; word++) {
+            delimiterCount += Long.bitCount(delimiters[word]);
+            newLineCount += Long.bitCount(newLines[word]);
+        }
+        Tokenization tokenization = new Tokenization(buffer, from, newLineCount + 1, delimiterCount + newLineCount + 1);
+        for (int word = 0; word < words; word++) {
+            tokenization.processWord(word, delimiters[word], quotes[word], newLines[word]);
+        }
+        return tokenization.finish(to);
+    }
+
+    /**
+     * Вычисляет префиксный XOR слова: бит i результата равен XOR битов с 0 по i.
+     * <p>
+     * Для карты кавычек это маска байтов от открывающей кавычки включительно до закрывающей не включительно.
+     *
+     * @param x Слово битовой карты.
+     * @return Префиксный XOR.
+     */
+    private static long prefixXor(long x) {
+        x ^= x << 1;
+        x ^= x << 2;
+        x ^= x << 4;
+        x ^= x << 8;
+        x ^= x << 16;
+        x ^= x << 32;
+        return x;
+    }
+
+    /**
+     * Состояние разбиения участка и накопленные границы строк и колонок.
+     */
+    private static class Tokenization {
+
+        private final byte[] buffer;
+
+        private final int from;
+
+        private final int[] rowStarts;
+
+        private final int[] rowFieldStarts;
+
+        private final int[] fieldStarts;
+
+        private final int[] fieldEnds;
+
+        private final boolean[] fieldQuoted;
+
+        private int rowCount;
+
+        private int fieldCount;
+
+        private int rowStart;
+
+        private int fieldStart;
+
+        private boolean inQuotes;
+
+        private boolean quoted;
+
+        /**
+         * Создаёт состояние разбиения.
+         *
+         * @param buffer    Буфер с текстом.
+         * @param from      Позиция начала участка.
+         * @param maxRows   Максимальное количество строк.
+         * @param maxFields Максимальное количество колонок.
+         */
+        private Tokenization(byte[] buffer, int from, int maxRows, int maxFields) {
+            this.buffer = buffer;
+            this.from = from;
+            rowStarts = new int[maxRows];
+            rowFieldStarts = new int[maxRows + 1];
+            fieldStarts = new int[maxFields];
+            fieldEnds = new int[maxFields];
+            fieldQuoted = new boolean[maxFields];
+            rowStart = from;
+            fieldStart = from;
+        }
+
+        /**
+         * Обрабатывает 64 байта участка по словам битовых карт.
+         *
+         * @param word       Номер слова.
+         * @param delimiters Слово карты разделителей.
+         * @param quotes     Слово карты кавычек.
+         * @param newLines   Слово карты переводов строки.
+         */
+        private void processWord(int word, long delimiters, long quotes, long newLines) {
+            long inside = prefixXor(quotes);
+            if (inQuotes) inside = ~inside;
+            if ((newLines & inside) != 0) {
+                processBits(word, delimiters | quotes | newLines);
+                return;
+            }
+            int base = from + (word << 6);
+            long separators = (delimiters & ~inside) | newLines;
+            long seen = 0;
+            while (separators != 0) {
+                long bit = separators & -separators;
+                separators ^= bit;
+                long before = bit - 1;
+                boolean fieldHasQuote = quoted || (quotes & before & ~seen) != 0;
+                int pos = base + Long.numberOfTrailingZeros(bit);
+                if ((newLines & bit) != 0) {
+                    endRow(pos, fieldHasQuote);
+                    rowStart = pos + 1;
+                } else {
+                    addField(fieldStart, pos, fieldHasQuote);
+                }
+                fieldStart = pos + 1;
+                quoted = false;
+                seen = before | bit;
+            }
+            quoted |= (quotes & ~seen) != 0;
+            inQuotes = inside < 0;
+        }
+
+        /**
+         * Обрабатывает слово по отдельным структурным символам.
+         * <p>
+         * Используется, когда перевод строки оказывается внутри кавычек и должен сбросить их состояние.
+         *
+         * @param word       Номер слова.
+         * @param structural Объединение слов всех трёх карт.
+         */
+        private void processBits(int word, long structural) {
+            int base = from + (word << 6);
+            while (structural != 0) {
+                int pos = base + Long.numberOfTrailingZeros(structural);
+                structural &= structural - 1;
+                byte b = buffer[pos];
+                if (b == DelimiterScanner.NEW_LINE) {
+                    endRow(pos, quoted);
+                    rowStart = fieldStart = pos + 1;
+                    inQuotes = quoted = false;
+                } else if (b == DelimiterScanner.QUOTE) {
+                    inQuotes = !inQuotes;
+                    quoted = true;
+                } else if (!inQuotes) {
+                    addField(fieldStart, pos, quoted);
+                    fieldStart = pos + 1;
+                    quoted = false;
+                }
+            }
+        }
+
+        /**
+         * Запоминает границы колонки.
+         *
+         * @param start    Позиция начала колонки.
+         * @param end      Позиция конца колонки (не включительно).
+         * @param hasQuote Есть ли в колонке кавычка.
+         */
+        private void addField(int start, int end, boolean hasQuote) {
+            fieldStarts[fieldCount] = start;
+            fieldEnds[fieldCount] = end;
+            fieldQuoted[fieldCount] = hasQuote;
+            fieldCount++;
+        }
+
+        /**
+         * Завершает строку последней колонкой, отбрасывая завершающий {@code \r}; пустая строка пропускается.
+         *
+         * @param end      Позиция конца строки (не включительно).
+         * @param hasQuote Есть ли в последней колонке кавычка.
+         */
+        private void endRow(int end, boolean hasQuote) {
+            if (end > fieldStart && buffer[end - 1] == '\r') end--;
+            boolean empty = fieldCount == rowFieldStarts[rowCount] && end == rowStart;
+            if (empty) return;
+            addField(fieldStart, end, hasQuote);
+            rowStarts[rowCount] = rowStart;
+            rowFieldStarts[++rowCount] = fieldCount;
+        }
+
+        /**
+         * Завершает последнюю строку участка, если она не заканчивается переводом строки.
+         *
+         * @param to Позиция конца участка (не включительно).
+         * @return Границы строк и колонок участка.
+         */
+        private TokenizedChunk finish(int to) {
+            if (rowStart < to) endRow(to, quoted);
+            return new TokenizedChunk(rowCount, rowStarts, rowFieldStarts, fieldStarts, fieldEnds, fieldQuoted);
+        }
+    }
+}
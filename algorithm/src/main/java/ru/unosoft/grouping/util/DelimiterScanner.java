@@ -0,0 +1,40 @@
+package ru.unosoft.grouping.util;
+
+/**
+ * Поиск структурных символов CSV: разделителя колонок, кавычки и перевода строки.
+ * <p>
+ * Результат записывается в три битовые карты, по одной на каждый символ: бит i установлен, если байт
+ * {@code from + i} является этим символом. Так позиции всего буфера находятся за один проход, а разбор
+ * кавычек затем выполняется над словами карт, а не над отдельными байтами.
+ */
+public interface DelimiterScanner {
+
+    /**
+     * Разделитель колонок.
+     */
+    byte DELIMITER = ';';
+
+    /**
+     * Кавычка.
+     */
+    byte QUOTE = '"';
+
+    /**
+     * Перевод строки.
+     */
+    byte NEW_LINE = '\n';
+
+    /**
+     * Отмечает структурные символы участка буфера в битовых картах.
+     * <p>
+     * Каждая карта должна быть обнулена и иметь длину не менее {@code (to - from + 63) / 64}.
+     *
+     * @param buffer     Буфер с текстом в кодировке UTF-8.
+     * @param from       Позиция начала участка.
+     * @param to         Позиция конца участка (не включительно).
+     * @param delimiters Битовая карта разделителей колонок.
+     * @param quotes     Битовая карта кавычек.
+     * @param newLines   Битовая карта переводов строки.
+     */
+    void scan(byte[] buffer, int from, int to, long[] delimiters, long[] quotes, long[] newLines);
+}
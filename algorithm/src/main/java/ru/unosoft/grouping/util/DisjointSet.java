@@ -0,0 +1,37 @@
+package ru.unosoft.grouping.util;
+
+/**
+ * Система непересекающихся множеств для объединения строк в группы.
+ * <p>
+ * Элементы нумеруются с нуля, каждый элемент изначально образует собственную группу.
+ * Реализации отличаются политикой объединения, сжатием путей и способом выделения памяти,
+ * и выбираются через {@link DisjointSetType}. Реализации, хранящие размеры групп,
+ * реализуют {@link SizeTrackingDisjointSet}.
+ */
+public interface DisjointSet {
+
+    /**
+     * Находит корень группы, к которой принадлежит элемент.
+     *
+     * @param x Элемент, для которого нужно найти корень группы.
+     * @return Корень группы элемента.
+     */
+    int find(int x);
+
+    /**
+     * Объединяет группы двух элементов, если они ещё не в одной группе.
+     *
+     * @param x Первый элемент для объединения.
+     * @param y Второй элемент для объединения.
+     */
+    void union(int x, int y);
+
+    /**
+     * Расширяет структуру так, чтобы она вмещала не менее указанного количества элементов.
+     * <p>
+     * Новые элементы образуют собственные группы.
+     *
+     * @param size Требуемое количество элементов.
+     */
+    void ensureCapacity(int size);
+}
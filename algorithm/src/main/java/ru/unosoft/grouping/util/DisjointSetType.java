@@ -0,0 +1,43 @@
+package ru.unosoft.grouping.util;
+
+/**
+ * Реализация {@link DisjointSet}, выбираемая в конфигурации.
+ */
+public enum DisjointSetType {
+
+    /**
+     * Объединение по рангу с полным сжатием пути, {@link UnionFind}.
+     */
+    RANK,
+
+    /**
+     * Объединение по рангу с делением пути пополам, {@link PathHalvingDisjointSet}.
+     */
+    PATH_HALVING,
+
+    /**
+     * Объединение по размеру с хранением размеров групп, {@link SizedDisjointSet}.
+     */
+    SIZE,
+
+    /**
+     * Объединение по размеру с выделением памяти страницами по мере роста номеров элементов,
+     * {@link PagedDisjointSet}.
+     */
+    PAGED;
+
+    /**
+     * Создаёт структуру выбранного типа.
+     *
+     * @param size Ожидаемое количество элементов.
+     * @return Структура, в которой каждый элемент образует собственную группу.
+     */
+    public DisjointSet create(int size) {
+        return switch (this) {
+            case RANK -> new UnionFind(size);
+            case PATH_HALVING -> new PathHalvingDisjointSet(size);
+            case SIZE -> new SizedDisjointSet(size);
+            case PAGED -> new PagedDisjointSet(size);
+        };
+    }
+}
@@ -0,0 +1,213 @@
+package ru.unosoft.grouping.util;
+
+import java.io.FilterInputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * Перевод позиций символов, которые читает парсер CSV, в байтовые смещения и номера строк файла.
+ * <p>
+ * Символы {@code \r} и {@code \n} занимают в UTF-8 один байт и не входят в многобайтовые последовательности,
+ * поэтому i-й такой символ текста соответствует i-му такому байту потока. Обёртки потока байт и Reader
+ * запоминают позиции этих символов, а позиция начала записи, которая всегда следует за концом строки,
+ * переводится в байты по их номеру. Позиции, оставшиеся позади, освобождаются, поэтому память ограничена
+ * опережающим чтением Reader и парсера.
+ */
+public class LineBreakTracker {
+
+    private final LongQueue byteBreaks = new LongQueue();
+
+    private final LongQueue charBreaks = new LongQueue();
+
+    private long bytePosition;
+
+    private long charPosition;
+
+    private int newLines;
+
+    private boolean endsWithNewLine;
+
+    private long recordStart;
+
+    private int recordLine;
+
+    /**
+     * Оборачивает поток байт файла, запоминая позиции {@code \r} и {@code \n}.
+     *
+     * @param input Поток байт в кодировке UTF-8.
+     * @return Поток, который нужно передать в Reader.
+     */
+    public InputStream track(InputStream input) {
+        return new FilterInputStream(input) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) trackByte((byte) b);
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                for (int i = off; i < off + n; i++) {
+                    trackByte(b[i]);
+                }
+                return n;
+            }
+        };
+    }
+
+    /**
+     * Оборачивает Reader, созданный поверх {@link #track(InputStream)}, запоминая позиции {@code \r} и {@code \n}.
+     *
+     * @param reader Reader, декодирующий поток.
+     * @return Reader, который нужно передать парсеру CSV.
+     */
+    public Reader track(Reader reader) {
+        return new FilterReader(reader) {
+            @Override
+            public int read() throws IOException {
+                int c = super.read();
+                if (c >= 0) trackChar((char) c);
+                return c;
+            }
+
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                int n = super.read(cbuf, off, len);
+                for (int i = off; i < off + n; i++) {
+                    trackChar(cbuf[i]);
+                }
+                return n;
+            }
+        };
+    }
+
+    /**
+     * Находит начало записи в файле по позиции её первого символа.
+     * <p>
+     * Концы строк, которые идут сразу с этой позиции, пропускаются так же, как парсер пропускает пустые строки.
+     * Позиции должны передаваться по возрастанию.
+     *
+     * @param position Позиция символа, с которого парсер начал запись: начало текста или символ после конца строки.
+     * @return Смещение начала записи в байтах.
+     */
+    public long recordStart(long position) {
+        while (!charBreaks.isEmpty() && charBreaks.peek() <= position) {
+            if (charBreaks.poll() == position) position++;
+            long byteBreak = byteBreaks.poll();
+            if ((byteBreak & 1) != 0) recordLine++;
+            recordStart = (byteBreak >>> 1) + 1;
+        }
+        return recordStart;
+    }
+
+    /**
+     * Возвращает номер строки, в которой начинается запись, найденная последним вызовом {@link #recordStart}.
+     *
+     * @return Номер строки файла по переводам строки, начиная с нуля.
+     */
+    public int recordLine() {
+        return recordLine;
+    }
+
+    /**
+     * Возвращает количество строк прочитанной части файла.
+     * <p>
+     * Строки считаются по переводам строки, последняя строка без перевода строки тоже учитывается.
+     *
+     * @return Количество строк.
+     */
+    public int lineCount() {
+        return bytePosition == 0 || endsWithNewLine ? newLines : newLines + 1;
+    }
+
+    /**
+     * Запоминает позицию прочитанного байта, если это конец строки.
+     * <p>
+     * В очередь записывается позиция, сдвинутая на бит, и признак перевода строки в младшем бите.
+     *
+     * @param b Прочитанный байт.
+     */
+    private void trackByte(byte b) {
+        if (b == '\n') {
+            byteBreaks.add(bytePosition << 1 | 1);
+            newLines++;
+        } else if (b == '\r') {
+            byteBreaks.add(bytePosition << 1);
+        }
+        endsWithNewLine = b == '\n';
+        bytePosition++;
+    }
+
+    /**
+     * Запоминает позицию прочитанного символа, если это конец строки.
+     *
+     * @param c Прочитанный символ.
+     */
+    private void trackChar(char c) {
+        if (c == '\n' || c == '\r') charBreaks.add(charPosition);
+        charPosition++;
+    }
+
+    /**
+     * Очередь long на кольцевом буфере.
+     */
+    private static class LongQueue {
+
+        private long[] values = new long[16];
+
+        private int head;
+
+        private int size;
+
+        /**
+         * Добавляет значение в конец очереди, расширяя буфер при необходимости.
+         *
+         * @param value Значение.
+         */
+        private void add(long value) {
+            if (size == values.length) {
+                long[] grown = new long[values.length * 2];
+                for (int i = 0; i < size; i++) {
+                    grown[i] = values[(head + i) & (values.length - 1)];
+                }
+                values = grown;
+                head = 0;
+            }
+            values[(head + size++) & (values.length - 1)] = value;
+        }
+
+        /**
+         * Проверяет, пуста ли очередь.
+         *
+         * @return true, если очередь пуста; иначе false.
+         */
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * Возвращает первое значение очереди, не удаляя его.
+         *
+         * @return Первое значение.
+         */
+        private long peek() {
+            return values[head];
+        }
+
+        /**
+         * Удаляет и возвращает первое значение очереди.
+         *
+         * @return Первое значение.
+         */
+        private long poll() {
+            long value = values[head];
+            head = (head + 1) & (values.length - 1);
+            size--;
+            return value;
+        }
+    }
+}
@@ -17,4 +17,14 @@ public class LineUtil {
     public String buildLine(String[] line) {
         return String.join(";", line);
     }
+
+    /**
+     * Разбивает строку, построенную методом {@link #buildLine(String[])}, на колонки.
+     *
+     * @param line Объединённая строка.
+     * @return Массив значений колонок, включая пустые.
+     */
+    public String[] splitLine(String line) {
+        return line.split(";", -1);
+    }
 }
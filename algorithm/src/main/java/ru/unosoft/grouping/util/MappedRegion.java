@@ -0,0 +1,92 @@
+package ru.unosoft.grouping.util;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Участок файла, отображённый в память частями.
+ * <p>
+ * Один MappedByteBuffer не может превышать 2 ГБ, поэтому участок отображается частями по 1 ГБ.
+ * Размер части кратен размерам int и long, поэтому числа никогда не пересекают границу частей.
+ */
+public class MappedRegion {
+
+    private static final int CHUNK_SHIFT = 30;
+
+    private static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+
+    private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final MappedByteBuffer[] chunks;
+
+    /**
+     * Отображает участок файла в память.
+     *
+     * @param channel Канал файла.
+     * @param offset  Смещение участка в файле.
+     * @param size    Размер участка в байтах.
+     * @throws IOException Если произошла ошибка при отображении.
+     */
+    public MappedRegion(FileChannel channel, long offset, long size) throws IOException {
+        int count = (int) ((size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+        chunks = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long start = (long) i << CHUNK_SHIFT;
+            chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset + start, Math.min(CHUNK_SIZE, size - start));
+        }
+    }
+
+    /**
+     * Читает байт по его индексу в участке.
+     *
+     * @param index Индекс байта.
+     * @return Значение.
+     */
+    public byte getByte(long index) {
+        return chunks[(int) (index >>> CHUNK_SHIFT)].get((int) (index & CHUNK_MASK));
+    }
+
+    /**
+     * Читает int по его индексу в участке.
+     *
+     * @param index Индекс числа.
+     * @return Значение.
+     */
+    public int getInt(long index) {
+        long position = index * Integer.BYTES;
+        return chunks[(int) (position >>> CHUNK_SHIFT)].getInt((int) (position & CHUNK_MASK));
+    }
+
+    /**
+     * Читает long по его индексу в участке.
+     *
+     * @param index Индекс числа.
+     * @return Значение.
+     */
+    public long getLong(long index) {
+        long position = index * Long.BYTES;
+        return chunks[(int) (position >>> CHUNK_SHIFT)].getLong((int) (position & CHUNK_MASK));
+    }
+
+    /**
+     * Копирует байты участка в массив.
+     *
+     * @param position Смещение первого байта в участке.
+     * @param length   Количество байт.
+     * @return Массив байт.
+     */
+    public byte[] getBytes(long position, int length) {
+        byte[] bytes = new byte[length];
+        int copied = 0;
+        while (copied < length) {
+            long current = position + copied;
+            MappedByteBuffer chunk = chunks[(int) (current >>> CHUNK_SHIFT)];
+            int chunkOffset = (int) (current & CHUNK_MASK);
+            int n = Math.min(length - copied, chunk.limit() - chunkOffset);
+            chunk.get(chunkOffset, bytes, copied, n);
+            copied += n;
+        }
+        return bytes;
+    }
+}
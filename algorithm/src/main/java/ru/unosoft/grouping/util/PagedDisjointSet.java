@@ -0,0 +1,150 @@
+package ru.unosoft.grouping.util;
+
+import java.util.Arrays;
+
+/**
+ * Система непересекающихся множеств с объединением по размеру, память которой выделяется страницами.
+ * <p>
+ * Родитель хранится как номер плюс один, а размер — как размер минус один, поэтому нулевое значение
+ * означает собственную группу из одного элемента. Благодаря этому новые страницы не требуют инициализации,
+ * а страница выделяется только при первой записи в неё. Структура растёт сама по мере появления новых
+ * номеров элементов, поэтому её не нужно расширять заранее.
+ */
+public class PagedDisjointSet implements SizeTrackingDisjointSet {
+
+    private static final int PAGE_SHIFT = 16;
+
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private int[][] parentPages;
+
+    private int[][] sizePages;
+
+    /**
+     * Создаёт структуру, каталог страниц которой рассчитан на указанное количество элементов.
+     *
+     * @param size Ожидаемое количество элементов.
+     */
+    public PagedDisjointSet(int size) {
+        int pages = Math.max(1, (size + PAGE_SIZE - 1) >>> PAGE_SHIFT);
+        parentPages = new int[pages][];
+        sizePages = new int[pages][];
+    }
+
+    @Override
+    public int find(int x) {
+        int p;
+        while ((p = parentOf(x)) != x) {
+            int grandParent = parentOf(p);
+            if (grandParent != p) setParent(x, grandParent);
+            x = grandParent;
+        }
+        return x;
+    }
+
+    @Override
+    public void union(int x, int y) {
+        int rootX = find(x);
+        int rootY = find(y);
+        if (rootX == rootY) return;
+        int sizeX = sizeOf(rootX);
+        int sizeY = sizeOf(rootY);
+        if (sizeX < sizeY) {
+            int swap = rootX;
+            rootX = rootY;
+            rootY = swap;
+        }
+        setParent(rootY, rootX);
+        sizePage(rootX)[rootX & PAGE_MASK] = sizeX + sizeY - 1;
+    }
+
+    @Override
+    public void ensureCapacity(int size) {
+    }
+
+    @Override
+    public int groupSize(int x) {
+        return sizeOf(find(x));
+    }
+
+    /**
+     * Возвращает родителя элемента, не выделяя страниц.
+     * <p>
+     * На странице родитель хранится со сдвигом на единицу, поэтому 0 означает, что элемент — сам себе корень.
+     *
+     * @param x Элемент.
+     * @return Родитель элемента.
+     */
+    private int parentOf(int x) {
+        int page = x >>> PAGE_SHIFT;
+        if (page >= parentPages.length || parentPages[page] == null) return x;
+        int value = parentPages[page][x & PAGE_MASK];
+        return value == 0 ? x : value - 1;
+    }
+
+    /**
+     * Записывает родителя элемента со сдвигом на единицу.
+     *
+     * @param x      Элемент.
+     * @param parent Новый родитель.
+     */
+    private void setParent(int x, int parent) {
+        parentPage(x)[x & PAGE_MASK] = parent + 1;
+    }
+
+    /**
+     * Возвращает размер множества, не выделяя страниц.
+     * <p>
+     * На странице размер хранится уменьшенным на единицу, поэтому 0 соответствует множеству из одного элемента.
+     *
+     * @param root Корень множества.
+     * @return Количество элементов множества.
+     */
+    private int sizeOf(int root) {
+        int page = root >>> PAGE_SHIFT;
+        if (page >= sizePages.length || sizePages[page] == null) return 1;
+        return sizePages[page][root & PAGE_MASK] + 1;
+    }
+
+    /**
+     * Возвращает страницу родителей элемента, выделяя её при необходимости.
+     *
+     * @param x Элемент.
+     * @return Страница, содержащая элемент.
+     */
+    private int[] parentPage(int x) {
+        int page = ensurePage(x);
+        if (parentPages[page] == null) parentPages[page] = new int[PAGE_SIZE];
+        return parentPages[page];
+    }
+
+    /**
+     * Возвращает страницу размеров элемента, выделяя её при необходимости.
+     *
+     * @param x Элемент.
+     * @return Страница, содержащая элемент.
+     */
+    private int[] sizePage(int x) {
+        int page = ensurePage(x);
+        if (sizePages[page] == null) sizePages[page] = new int[PAGE_SIZE];
+        return sizePages[page];
+    }
+
+    /**
+     * Расширяет каталоги страниц так, чтобы они вмещали страницу элемента.
+     *
+     * @param x Элемент.
+     * @return Номер страницы элемента.
+     */
+    private int ensurePage(int x) {
+        int page = x >>> PAGE_SHIFT;
+        if (page >= parentPages.length) {
+            int newLength = Math.max(page + 1, parentPages.length * 2);
+            parentPages = Arrays.copyOf(parentPages, newLength);
+            sizePages = Arrays.copyOf(sizePages, newLength);
+        }
+        return page;
+    }
+}
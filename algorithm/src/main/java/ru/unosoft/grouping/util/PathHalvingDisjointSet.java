@@ -0,0 +1,74 @@
+package ru.unosoft.grouping.util;
+
+import java.util.Arrays;
+
+/**
+ * Система непересекающихся множеств с объединением по рангу и делением пути пополам.
+ * <p>
+ * При поиске каждый пройденный элемент перевешивается на своего деда, поэтому поиск выполняется за один
+ * проход без рекурсии и без второго прохода по пути. Политика объединения совпадает с {@link UnionFind},
+ * поэтому корни групп тоже совпадают. Ранги отсчитываются от нуля и не требуют инициализации.
+ */
+public class PathHalvingDisjointSet implements DisjointSet {
+
+    private int[] parent;
+
+    private int[] rank;
+
+    /**
+     * Создаёт структуру с указанным количеством элементов.
+     *
+     * @param size Количество элементов в структуре.
+     */
+    public PathHalvingDisjointSet(int size) {
+        parent = new int[size];
+        rank = new int[size];
+        initParents(0, size);
+    }
+
+    @Override
+    public int find(int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+
+    @Override
+    public void union(int x, int y) {
+        int rootX = find(x);
+        int rootY = find(y);
+        if (rootX == rootY) return;
+        if (rank[rootX] < rank[rootY]) {
+            parent[rootX] = rootY;
+        } else if (rank[rootX] > rank[rootY]) {
+            parent[rootY] = rootX;
+        } else {
+            parent[rootY] = rootX;
+            rank[rootX]++;
+        }
+    }
+
+    @Override
+    public void ensureCapacity(int size) {
+        int oldSize = parent.length;
+        if (size <= oldSize) return;
+        int newSize = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(size, 2L * oldSize));
+        parent = Arrays.copyOf(parent, newSize);
+        rank = Arrays.copyOf(rank, newSize);
+        initParents(oldSize, newSize);
+    }
+
+    /**
+     * Делает новые элементы корнями собственных множеств.
+     *
+     * @param from Первый новый элемент.
+     * @param to   Элемент после последнего нового.
+     */
+    private void initParents(int from, int to) {
+        for (int i = from; i < to; i++) {
+            parent[i] = i;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package ru.unosoft.grouping.util;
+
+/**
+ * Побайтовый поиск структурных символов CSV.
+ * <p>
+ * Используется, когда модуль jdk.incubator.vector недоступен, а также для хвоста буфера,
+ * не кратного длине вектора.
+ */
+public class ScalarDelimiterScanner implements DelimiterScanner {
+
+    @Override
+    public void scan(byte[] buffer, int from, int to, long[] delimiters, long[] quotes, long[] newLines) {
+        scanTail(buffer, from, from, to, delimiters, quotes, newLines);
+    }
+
+    /**
+     * Отмечает структурные символы участка, начиная с заданной позиции.
+     *
+     * @param buffer     Буфер с текстом.
+     * @param base       Позиция, соответствующая нулевому биту карт.
+     * @param from       Позиция начала просмотра.
+     * @param to         Позиция конца участка (не включительно).
+     * @param delimiters Битовая карта разделителей колонок.
+     * @param quotes     Битовая карта кавычек.
+     * @param newLines   Битовая карта переводов строки.
+     */
+    static void scanTail(
+            byte[] buffer, int base, int from, int to, long[] delimiters, long[] quotes, long[] newLines
+    ) {
+        for (int i = from; i < to; i++) {
+            byte b = buffer[i];
+            int bit = i - base;
+            if (b == DELIMITER) {
+                delimiters[bit >>> 6] |= 1L << bit;
+            } else if (b == QUOTE) {
+                quotes[bit >>> 6] |= 1L << bit;
+            } else if (b == NEW_LINE) {
+                newLines[bit >>> 6] |= 1L << bit;
+            }
+        }
+    }
+}
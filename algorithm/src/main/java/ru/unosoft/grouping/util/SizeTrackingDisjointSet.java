@@ -0,0 +1,15 @@
+package ru.unosoft.grouping.util;
+
+/**
+ * Система непересекающихся множеств, которая хранит размер каждой группы в её корне.
+ */
+public interface SizeTrackingDisjointSet extends DisjointSet {
+
+    /**
+     * Возвращает количество элементов в группе элемента.
+     *
+     * @param x Элемент группы.
+     * @return Размер группы.
+     */
+    int groupSize(int x);
+}
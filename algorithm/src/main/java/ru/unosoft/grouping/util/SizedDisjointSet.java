@@ -0,0 +1,78 @@
+package ru.unosoft.grouping.util;
+
+import java.util.Arrays;
+
+/**
+ * Система непересекающихся множеств с объединением по размеру и делением пути пополам.
+ * <p>
+ * Меньшая группа подвешивается к большей, а размер группы хранится в её корне,
+ * поэтому размеры групп известны сразу после объединения без отдельного подсчёта.
+ */
+public class SizedDisjointSet implements SizeTrackingDisjointSet {
+
+    private int[] parent;
+
+    private int[] size;
+
+    /**
+     * Создаёт структуру с указанным количеством элементов.
+     *
+     * @param size Количество элементов в структуре.
+     */
+    public SizedDisjointSet(int size) {
+        this.parent = new int[size];
+        this.size = new int[size];
+        initElements(0, size);
+    }
+
+    @Override
+    public int find(int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+
+    @Override
+    public void union(int x, int y) {
+        int rootX = find(x);
+        int rootY = find(y);
+        if (rootX == rootY) return;
+        if (size[rootX] < size[rootY]) {
+            int swap = rootX;
+            rootX = rootY;
+            rootY = swap;
+        }
+        parent[rootY] = rootX;
+        size[rootX] += size[rootY];
+    }
+
+    @Override
+    public void ensureCapacity(int size) {
+        int oldSize = parent.length;
+        if (size <= oldSize) return;
+        int newSize = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(size, 2L * oldSize));
+        parent = Arrays.copyOf(parent, newSize);
+        this.size = Arrays.copyOf(this.size, newSize);
+        initElements(oldSize, newSize);
+    }
+
+    @Override
+    public int groupSize(int x) {
+        return size[find(x)];
+    }
+
+    /**
+     * Делает новые элементы корнями собственных множеств из одного элемента.
+     *
+     * @param from Первый новый элемент.
+     * @param to   Элемент после последнего нового.
+     */
+    private void initElements(int from, int to) {
+        for (int i = from; i < to; i++) {
+            parent[i] = i;
+            size[i] = 1;
+        }
+    }
+}
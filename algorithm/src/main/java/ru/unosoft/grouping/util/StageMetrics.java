@@ -0,0 +1,116 @@
+package ru.unosoft.grouping.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Метрики заполненности ограниченной очереди между этапами конвейера.
+ * <p>
+ * Заполненность замеряется при каждой постановке пакета в очередь. Время ожидания поставщика показывает,
+ * насколько этап-потребитель не успевает за поставщиком, а время ожидания потребителя — насколько этап-поставщик
+ * не успевает за потребителем. Если в очереди лежат ещё не готовые результаты, время их ожидания учитывается
+ * отдельно, чтобы медленный разбор не выглядел как медленное чтение. Все методы потокобезопасны.
+ */
+public class StageMetrics {
+
+    private static final double NANOS_IN_MILLISECOND = 1_000_000.0;
+
+    private final String name;
+
+    private final int capacity;
+
+    private final AtomicLong samples = new AtomicLong();
+
+    private final AtomicLong occupancySum = new AtomicLong();
+
+    private final LongAccumulator maxOccupancy = new LongAccumulator(Math::max, 0);
+
+    private final AtomicLong producerWaitNanos = new AtomicLong();
+
+    private final AtomicLong consumerWaitNanos = new AtomicLong();
+
+    private final AtomicLong resultWaitNanos = new AtomicLong();
+
+    /**
+     * Создаёт метрики для очереди.
+     *
+     * @param name     Название очереди для вывода в лог.
+     * @param capacity Ёмкость очереди.
+     */
+    public StageMetrics(String name, int capacity) {
+        this.name = name;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Учитывает постановку пакета в очередь.
+     *
+     * @param occupancy Заполненность очереди перед постановкой.
+     * @param waitNanos Время, которое поставщик ждал освобождения места в очереди.
+     */
+    public void recordPut(int occupancy, long waitNanos) {
+        samples.incrementAndGet();
+        occupancySum.addAndGet(occupancy);
+        maxOccupancy.accumulate(occupancy);
+        producerWaitNanos.addAndGet(waitNanos);
+    }
+
+    /**
+     * Учитывает получение пакета из очереди.
+     *
+     * @param waitNanos Время, которое потребитель ждал появления готового пакета.
+     */
+    public void recordTake(long waitNanos) {
+        consumerWaitNanos.addAndGet(waitNanos);
+    }
+
+    /**
+     * Учитывает ожидание готовности результата, уже полученного из очереди.
+     *
+     * @param waitNanos Время, которое потребитель ждал завершения обработки пакета.
+     */
+    public void recordResultWait(long waitNanos) {
+        resultWaitNanos.addAndGet(waitNanos);
+    }
+
+    /**
+     * Возвращает суммарное время ожидания потребителем появления пакета в очереди.
+     *
+     * @return Время ожидания в наносекундах.
+     */
+    public long consumerWaitNanos() {
+        return consumerWaitNanos.get();
+    }
+
+    /**
+     * Возвращает суммарное время ожидания потребителем готовности полученных пакетов.
+     *
+     * @return Время ожидания в наносекундах.
+     */
+    public long resultWaitNanos() {
+        return resultWaitNanos.get();
+    }
+
+    /**
+     * Вычисляет среднюю заполненность очереди относительно её ёмкости.
+     *
+     * @return Средняя заполненность от 0 до 1.
+     */
+    public double averageFill() {
+        long count = samples.get();
+        return count == 0 || capacity == 0 ? 0 : (double) occupancySum.get() / count / capacity;
+    }
+
+    /**
+     * Формирует сводку метрик для вывода в лог.
+     *
+     * @return Строка со сводкой метрик.
+     */
+    public String summary() {
+        return String.format("%s: пакетов %d, средняя заполненность %.1f%% (макс. %d из %d), "
+                        + "ожидание поставщика %.1f мс, ожидание потребителя %.1f мс, ожидание результата %.1f мс",
+                name, samples.get(), averageFill() * 100, maxOccupancy.get(), capacity,
+                producerWaitNanos.get() / NANOS_IN_MILLISECOND, consumerWaitNanos.get() / NANOS_IN_MILLISECOND,
+                resultWaitNanos.get() / NANOS_IN_MILLISECOND);
+    }
+}
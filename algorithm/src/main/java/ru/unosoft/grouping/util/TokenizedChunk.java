@@ -0,0 +1,91 @@
+package ru.unosoft.grouping.util;
+
+/**
+ * Границы строк и колонок в буфере, найденные {@link CsvTokenizer}.
+ * <p>
+ * Колонки всех строк хранятся подряд в общих массивах; колонки строки r имеют номера
+ * от {@code firstField(r)} до {@code firstField(r + 1)} не включительно.
+ */
+public class TokenizedChunk {
+
+    private final int rowCount;
+
+    private final int[] rowStarts;
+
+    private final int[] rowFieldStarts;
+
+    private final int[] fieldStarts;
+
+    private final int[] fieldEnds;
+
+    private final boolean[] fieldQuoted;
+
+    TokenizedChunk(int rowCount, int[] rowStarts, int[] rowFieldStarts,
+                   int[] fieldStarts, int[] fieldEnds, boolean[] fieldQuoted) {
+        this.rowCount = rowCount;
+        this.rowStarts = rowStarts;
+        this.rowFieldStarts = rowFieldStarts;
+        this.fieldStarts = fieldStarts;
+        this.fieldEnds = fieldEnds;
+        this.fieldQuoted = fieldQuoted;
+    }
+
+    /**
+     * Возвращает количество непустых строк.
+     *
+     * @return Количество строк.
+     */
+    public int rowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Возвращает позицию начала строки в буфере.
+     *
+     * @param row Номер строки.
+     * @return Позиция первого байта строки.
+     */
+    public int rowStart(int row) {
+        return rowStarts[row];
+    }
+
+    /**
+     * Возвращает номер первой колонки строки в общих массивах колонок.
+     *
+     * @param row Номер строки; для {@code rowCount()} возвращается общее количество колонок.
+     * @return Номер первой колонки.
+     */
+    public int firstField(int row) {
+        return rowFieldStarts[row];
+    }
+
+    /**
+     * Возвращает позицию начала колонки в буфере.
+     *
+     * @param field Номер колонки.
+     * @return Позиция первого байта колонки.
+     */
+    public int fieldStart(int field) {
+        return fieldStarts[field];
+    }
+
+    /**
+     * Возвращает позицию конца колонки в буфере.
+     *
+     * @param field Номер колонки.
+     * @return Позиция после последнего байта колонки.
+     */
+    public int fieldEnd(int field) {
+        return fieldEnds[field];
+    }
+
+    /**
+     * Проверяет, содержит ли колонка кавычки.
+     *
+     * @param field Номер колонки.
+     * @return true, если в колонке есть хотя бы одна кавычка; иначе false.
+     */
+    public boolean isQuoted(int field) {
+        return fieldQuoted[field];
+    }
+}
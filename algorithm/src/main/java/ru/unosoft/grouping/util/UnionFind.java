@@ -1,13 +1,15 @@
 package ru.unosoft.grouping.util;
 
+import java.util.Arrays;
+
 /**
- * Реализация структуры данных UnionFind
+ * Реализация структуры данных UnionFind с объединением по рангу и полным сжатием пути.
  */
-public class UnionFind {
+public class UnionFind implements DisjointSet {
 
-    private final int[] parent;
+    private int[] parent;
 
-    private final int[] rank;
+    private int[] rank;
 
     /**
      * Создаёт структуру UnionFind с указанным количеством элементов.
@@ -23,17 +25,48 @@ public class UnionFind {
         }
     }
 
+    /**
+     * Расширяет структуру так, чтобы она вмещала не менее указанного количества элементов.
+     * <p>
+     * Новые элементы образуют собственные группы. Ёмкость увеличивается как минимум вдвое,
+     * чтобы последовательное добавление элементов не приводило к частому копированию массивов.
+     *
+     * @param size Требуемое количество элементов.
+     */
+    @Override
+    public void ensureCapacity(int size) {
+        int oldSize = parent.length;
+        if (size <= oldSize) return;
+        int newSize = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(size, 2L * oldSize));
+        parent = Arrays.copyOf(parent, newSize);
+        rank = Arrays.copyOf(rank, newSize);
+        for (int i = oldSize; i < newSize; i++) {
+            parent[i] = i;
+            rank[i] = 1;
+        }
+    }
+
     /**
      * Находит корень группы, к которой принадлежит элемент x, с применением сжатия пути.
+     * <p>
+     * Поиск выполняется в два прохода без рекурсии: сначала находится корень, затем все элементы пути
+     * подвешиваются прямо к нему. Поэтому длинная цепочка не приводит к переполнению стека.
      *
      * @param x Элемент, для которого нужно найти корень группы.
      * @return Корень группы элемента x.
      */
+    @Override
     public int find(int x) {
-        if (parent[x] != x) {
-            parent[x] = find(parent[x]);
+        int root = x;
+        while (parent[root] != root) {
+            root = parent[root];
+        }
+        while (parent[x] != root) {
+            int next = parent[x];
+            parent[x] = root;
+            x = next;
         }
-        return parent[x];
+        return root;
     }
 
     /**
@@ -42,6 +75,7 @@ public class UnionFind {
      * @param x Первый элемент для объединения.
      * @param y Второй элемент для объединения.
      */
+    @Override
     public void union(int x, int y) {
         int rootX = find(x);
         int rootY = find(y);
@@ -0,0 +1,46 @@
+package ru.unosoft.grouping.util;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Поиск структурных символов CSV с помощью Vector API.
+ * <p>
+ * За одну итерацию сравнивается вектор из 16, 32 или 64 байт в зависимости от набора инструкций процессора.
+ * Более длинные векторы (например, SVE до 2048 бит) ограничиваются 512 битами, чтобы маска совпадений
+ * вектора целиком укладывалась в одно слово битовой карты: длина вектора тогда делит 64.
+ * Класс загружается только при наличии модуля jdk.incubator.vector, см. {@link CsvTokenizer#create()}.
+ */
+public class VectorDelimiterScanner implements DelimiterScanner {
+
+    private static final int MAX_VECTOR_BITS = Long.SIZE * Byte.SIZE;
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED.vectorBitSize() > MAX_VECTOR_BITS
+            ? ByteVector.SPECIES_512
+            : ByteVector.SPECIES_PREFERRED;
+
+    @Override
+    public void scan(byte[] buffer, int from, int to, long[] delimiters, long[] quotes, long[] newLines) {
+        int length = SPECIES.length();
+        int bound = from + SPECIES.loopBound(to - from);
+        int i = from;
+        for (; i < bound; i += length) {
+            ByteVector vector = ByteVector.fromArray(SPECIES, buffer, i);
+            int bit = i - from;
+            int word = bit >>> 6;
+            delimiters[word] |= vector.eq(DELIMITER).toLong() << bit;
+            quotes[word] |= vector.eq(QUOTE).toLong() << bit;
+            newLines[word] |= vector.eq(NEW_LINE).toLong() << bit;
+        }
+        ScalarDelimiterScanner.scanTail(buffer, from, i, to, delimiters, quotes, newLines);
+    }
+
+    /**
+     * Возвращает количество байт, сравниваемых за одну итерацию.
+     *
+     * @return Длина вектора в байтах.
+     */
+    public static int vectorLength() {
+        return SPECIES.length();
+    }
+}
@@ -0,0 +1,95 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.unosoft.grouping.columnar.ColumnarFile;
+import ru.unosoft.grouping.configuration.AppConfiguration;
+import ru.unosoft.grouping.service.ColumnarConverterService;
+import ru.unosoft.grouping.service.CsvReaderService;
+import ru.unosoft.grouping.service.GroupingService;
+import ru.unosoft.grouping.service.PlanningService;
+import ru.unosoft.grouping.util.DisjointSetType;
+import ru.unosoft.grouping.util.LineUtil;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ColumnarFileTest {
+
+    private static final String MULTI_LINE_INPUT = "\"a\nb\";\"1\"\r\n\r\n\"x\";\"1\"\r\"y\";\"2\"\n"
+            + "\"ю\";\"2\"\n\"a\nb\";\"1\"\nz;\"3\"";
+
+    private final LineUtil lineUtil = new LineUtil();
+
+    private final CsvReaderService csvReaderService = new CsvReaderService(lineUtil);
+
+    private final GroupingService groupingService = new GroupingService(lineUtil);
+
+    private final ColumnarConverterService columnarConverterService = createConverter();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testColumnarFile_Case1() throws IOException {
+        ColumnarFile file = convertAndOpen("src/test/resources/input/case1.txt");
+        assertEquals(3, file.rowCount());
+        assertEquals(3, file.columnCount());
+        assertArrayEquals(new String[]{"300", "", "100"}, file.line(2));
+        assertEquals(0, file.valueId(1, 2));
+        assertEquals(file.valueId(1, 0), file.valueId(1, 1));
+        assertTrue(file.rowOffset(1) > file.rowOffset(0));
+    }
+
+    @Test
+    public void testGroupColumnar_MatchesCsv() throws IOException {
+        for (String inputFile : List.of("src/test/resources/input/case1.txt", "src/test/resources/input/case2.txt.gz")) {
+            Map<Integer, List<String>> expected = groupingService.groupLines(csvReaderService.readCsv(inputFile));
+            Map<Integer, List<String>> actual = groupingService.groupColumnar(convertAndOpen(inputFile));
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void testConvertMatchesCsvParser_MultiLineRecords() throws IOException {
+        Path inputFile = tempDir.resolve("multiline.txt");
+        Files.writeString(inputFile, MULTI_LINE_INPUT, StandardCharsets.UTF_8);
+        ColumnarFile file = convertAndOpen(inputFile.toString());
+        List<String[]> lines = csvReaderService.readCsv(inputFile.toString());
+        assertEquals(groupingService.groupLines(lines), groupingService.groupColumnar(file));
+        assertEquals(6, file.rowCount());
+        assertArrayEquals(new String[]{"a\nb", "1"}, file.line(0));
+        assertArrayEquals(new String[]{"ю", "2"}, file.line(3));
+        assertEquals(0, file.rowOffset(0));
+        assertEquals(byteOffset(MULTI_LINE_INPUT.indexOf("\"x\"")), file.rowOffset(1));
+        assertEquals(byteOffset(MULTI_LINE_INPUT.indexOf("\"y\"")), file.rowOffset(2));
+        assertEquals(byteOffset(MULTI_LINE_INPUT.indexOf("\"ю\"")), file.rowOffset(3));
+        assertEquals(byteOffset(MULTI_LINE_INPUT.lastIndexOf("\"a")), file.rowOffset(4));
+        assertEquals(byteOffset(MULTI_LINE_INPUT.indexOf("z;")), file.rowOffset(5));
+    }
+
+    private long byteOffset(int charIndex) {
+        return MULTI_LINE_INPUT.substring(0, charIndex).getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private ColumnarFile convertAndOpen(String inputFile) throws IOException {
+        Path columnarFile = tempDir.resolve("input.col");
+        columnarConverterService.convert(inputFile, columnarFile.toString());
+        return ColumnarFile.open(columnarFile);
+    }
+
+    private ColumnarConverterService createConverter() {
+        AppConfiguration appConfiguration = new AppConfiguration();
+        ReflectionTestUtils.setField(appConfiguration, "planningSampleLines", 100);
+        ReflectionTestUtils.setField(appConfiguration, "planningSamplePoints", 1);
+        ReflectionTestUtils.setField(appConfiguration, "disjointSet", DisjointSetType.RANK);
+        return new ColumnarConverterService(new PlanningService(appConfiguration), csvReaderService);
+    }
+}
@@ -0,0 +1,130 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.unosoft.grouping.service.CsvReaderService;
+import ru.unosoft.grouping.util.LineUtil;
+import ru.unosoft.grouping.util.ScalarDelimiterScanner;
+import ru.unosoft.grouping.util.VectorDelimiterScanner;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CsvTokenizerTest {
+
+    private final CsvReaderService csvReaderService = new CsvReaderService(new LineUtil());
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testVectorAndScalarScannersAgree() {
+        byte[] buffer = randomCsv(new Random(42), 10_000);
+        for (int from : new int[]{0, 1, 7, 63}) {
+            int words = (buffer.length - from + 63) >>> 6;
+            long[][] scalar = {new long[words], new long[words], new long[words]};
+            long[][] vector = {new long[words], new long[words], new long[words]};
+            new ScalarDelimiterScanner().scan(buffer, from, buffer.length, scalar[0], scalar[1], scalar[2]);
+            new VectorDelimiterScanner().scan(buffer, from, buffer.length, vector[0], vector[1], vector[2]);
+            for (int map = 0; map < scalar.length; map++) {
+                assertArrayEquals(toObjects(scalar[map]), toObjects(vector[map]));
+            }
+        }
+    }
+
+    @Test
+    public void testParseChunkMatchesCsvParser_Case1() throws IOException {
+        assertParseChunkMatchesCsvParser("src/test/resources/input/case1.txt");
+    }
+
+    @Test
+    public void testParseChunkMatchesCsvParser_Case2() throws IOException {
+        assertParseChunkMatchesCsvParser("src/test/resources/input/case2.txt");
+    }
+
+    @Test
+    public void testParseChunkHandlesQuotesAndEmptyLines() {
+        byte[] chunk = "\"a;b\";\" c \";d\r\n\n\"\"\"q\"\"\";e\nx\"y;z\n 4 ; \"5\" ".getBytes(StandardCharsets.UTF_8);
+        List<List<String>> rows = toLists(csvReaderService.parseChunk(chunk, chunk.length).getLines());
+        assertEquals(List.of(List.of("a;b", "c", "d"), List.of("\"q\"", "e"), List.of("4", "\"5\"")), rows);
+    }
+
+    @Test
+    public void testParseChunkMatchesCsvParser_QuotedDelimiters() throws IOException {
+        assertParseChunkMatchesCsvParser(writeInput("\"a;b\";\"c\"\n\"x;\";\";y\"\n\"1\";\"2;3;4\"\n"));
+    }
+
+    @Test
+    public void testParseChunkMatchesCsvParser_DoubledQuotes() throws IOException {
+        assertParseChunkMatchesCsvParser(
+                writeInput("\"x\"\"y\";\"z\"\n\"\"\"q\"\"\";\"r\"\n\"a\"\"\";b\n\"\";\"k\"\n"));
+    }
+
+    @Test
+    public void testParseChunkMatchesCsvParser_SpacesAroundQuotes() throws IOException {
+        assertParseChunkMatchesCsvParser(writeInput(" \"a\";b\n \"c;d\";e\n\"f\" ;g\nh;\"i\"\t\n"));
+    }
+
+    @Test
+    public void testParseChunkMatchesCsvParser_CarriageReturns() throws IOException {
+        assertParseChunkMatchesCsvParser(writeInput(" \"x\";c\rd;e\nf;g\n"));
+        assertParseChunkMatchesCsvParser(writeInput("a;b\rc;d\r\re;f\n\"g\"\r;h\n\"i\rj\";k\r\n"));
+    }
+
+    @Test
+    public void testParseChunkRowStartsFollowCarriageReturns() {
+        byte[] chunk = " \"x\";c\rd;e\nf;g\n".getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(new int[]{0, 7, 11}, csvReaderService.parseChunk(chunk, chunk.length).getRowStarts());
+    }
+
+    @Test
+    public void testTextAfterClosingQuoteFailsLikeCsvParser() throws IOException {
+        String filePath = writeInput("\"1\";\"2\"\n\"a\"b;c\n");
+        byte[] chunk = Files.readAllBytes(Path.of(filePath));
+        assertThrows(RuntimeException.class, () -> csvReaderService.readCsv(filePath));
+        assertThrows(RuntimeException.class, () -> csvReaderService.parseChunk(chunk, chunk.length));
+    }
+
+    @Test
+    public void testQuotedNewLineIsNotJoined() throws IOException {
+        String filePath = writeInput("\"a\nb\";\"c\"\n\"d\";\"e\"\n");
+        byte[] chunk = Files.readAllBytes(Path.of(filePath));
+        assertEquals(List.of(List.of("a\nb", "c"), List.of("d", "e")), toLists(csvReaderService.readCsv(filePath)));
+        assertEquals(List.of(List.of("d", "e")), toLists(csvReaderService.parseChunk(chunk, chunk.length).getLines()));
+    }
+
+    private void assertParseChunkMatchesCsvParser(String filePath) throws IOException {
+        byte[] chunk = Files.readAllBytes(Path.of(filePath));
+        assertEquals(toLists(csvReaderService.readCsv(filePath)), toLists(csvReaderService.parseChunk(chunk, chunk.length).getLines()));
+    }
+
+    private String writeInput(String content) throws IOException {
+        Path file = tempDir.resolve("input.txt");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file.toString();
+    }
+
+    private byte[] randomCsv(Random random, int length) {
+        byte[] alphabet = "ab1;\"\n\r ".getBytes(StandardCharsets.UTF_8);
+        byte[] buffer = new byte[length];
+        for (int i = 0; i < length; i++) {
+            buffer[i] = alphabet[random.nextInt(alphabet.length)];
+        }
+        return buffer;
+    }
+
+    private Long[] toObjects(long[] values) {
+        return Arrays.stream(values).boxed().toArray(Long[]::new);
+    }
+
+    private List<List<String>> toLists(List<String[]> lines) {
+        return lines.stream().map(List::of).toList();
+    }
+}
@@ -0,0 +1,86 @@
+import org.junit.jupiter.api.Test;
+import ru.unosoft.grouping.util.DisjointSet;
+import ru.unosoft.grouping.util.DisjointSetType;
+import ru.unosoft.grouping.util.SizeTrackingDisjointSet;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+public class DisjointSetTest {
+
+    private static final int SIZE = 200_000;
+
+    @Test
+    public void testImplementationsProduceSamePartition() {
+        int[][] unions = randomUnions(SIZE, SIZE / 2, new Random(42));
+        DisjointSet reference = DisjointSetType.RANK.create(SIZE);
+        for (int[] union : unions) {
+            reference.union(union[0], union[1]);
+        }
+        for (DisjointSetType type : DisjointSetType.values()) {
+            DisjointSet set = type.create(type == DisjointSetType.PAGED ? 0 : SIZE);
+            for (int[] union : unions) {
+                set.union(union[0], union[1]);
+            }
+            int[] sizes = new int[SIZE];
+            for (int x = 0; x < SIZE; x++) {
+                assertEquals(reference.find(x) == reference.find(0), set.find(x) == set.find(0), type.name());
+                assertEquals(set.find(reference.find(x)), set.find(x), type.name());
+                sizes[set.find(x)]++;
+            }
+            if (set instanceof SizeTrackingDisjointSet sized) {
+                for (int x = 0; x < SIZE; x++) {
+                    assertEquals(sizes[sized.find(x)], sized.groupSize(x), type.name());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPathHalvingKeepsRootsOfUnionFind() {
+        int[][] unions = randomUnions(SIZE, SIZE, new Random(7));
+        DisjointSet reference = DisjointSetType.RANK.create(SIZE);
+        DisjointSet set = DisjointSetType.PATH_HALVING.create(SIZE);
+        for (int[] union : unions) {
+            reference.union(union[0], union[1]);
+            set.union(union[0], union[1]);
+        }
+        for (int x = 0; x < SIZE; x++) {
+            assertEquals(reference.find(x), set.find(x));
+        }
+    }
+
+    @Test
+    public void testLongChainAndGrowth() {
+        for (DisjointSetType type : DisjointSetType.values()) {
+            DisjointSet set = type.create(1);
+            for (int x = 1; x < SIZE; x++) {
+                set.ensureCapacity(x + 1);
+                set.union(x, x - 1);
+            }
+            int root = set.find(0);
+            assertEquals(root, set.find(SIZE - 1), type.name());
+            if (set instanceof SizeTrackingDisjointSet sized) {
+                assertEquals(SIZE, sized.groupSize(SIZE / 2), type.name());
+            }
+            set.ensureCapacity(SIZE + 1);
+            assertEquals(SIZE, set.find(SIZE), type.name());
+            assertNotEquals(root, set.find(SIZE), type.name());
+        }
+        SizeTrackingDisjointSet paged = (SizeTrackingDisjointSet) DisjointSetType.PAGED.create(0);
+        paged.union(5_000_000, 3);
+        assertEquals(paged.find(3), paged.find(5_000_000));
+        assertEquals(2, paged.groupSize(3));
+        assertEquals(1, paged.groupSize(7_000_000));
+    }
+
+    private int[][] randomUnions(int size, int count, Random random) {
+        int[][] unions = new int[count][];
+        for (int i = 0; i < count; i++) {
+            unions[i] = new int[]{random.nextInt(size), random.nextInt(size)};
+        }
+        return unions;
+    }
+}
@@ -0,0 +1,180 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.unosoft.grouping.columnar.ColumnarFile;
+import ru.unosoft.grouping.configuration.AppConfiguration;
+import ru.unosoft.grouping.index.GroupIndex;
+import ru.unosoft.grouping.service.ColumnarConverterService;
+import ru.unosoft.grouping.service.CsvReaderService;
+import ru.unosoft.grouping.service.GroupingService;
+import ru.unosoft.grouping.service.IndexWriterService;
+import ru.unosoft.grouping.service.PlanningService;
+import ru.unosoft.grouping.util.DisjointSetType;
+import ru.unosoft.grouping.util.LineUtil;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class GroupIndexTest {
+
+    private static final String INPUT_WITH_DUPLICATES = String.join("\n",
+            "\"1\";\"2\"",
+            "",
+            "\"1\";\"2\"",
+            "a\"b;c",
+            "\"5\";\"2\"",
+            "\"7\";\"8\"") + "\n";
+
+    private static final String MULTI_LINE_INPUT = String.join("\n",
+            "\"a",
+            "b\";\"1\"",
+            "\"x\";\"1\"",
+            "\"c\";\"2\"\r\"d\";\"3\"") + "\n";
+
+    private static final String INPUT_WITH_SEPARATORS = String.join("\n",
+            "\"a;b\";\"x\"",
+            "\"c\";\"x\"",
+            "\"ю\";\"b;ю\"",
+            "\"q\";\"b\"") + "\n";
+
+    private final LineUtil lineUtil = new LineUtil();
+
+    private final CsvReaderService csvReaderService = new CsvReaderService(lineUtil);
+
+    private final GroupingService groupingService = new GroupingService(lineUtil);
+
+    private final IndexWriterService indexWriterService = new IndexWriterService(lineUtil, csvReaderService);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testIndexLookups_Case1() throws IOException {
+        GroupIndex index = writeAndOpenIndex("src/test/resources/input/case1.txt");
+        assertEquals(1, index.groupCount());
+        assertEquals(3, index.rowCount());
+        assertEquals(1, index.groupOfRow(2));
+        assertEquals(1, index.findGroup(1, "123"));
+        assertEquals(1, index.findGroup(2, "100"));
+        assertEquals(GroupIndex.NOT_FOUND, index.findGroup(0, "123"));
+        assertEquals(List.of("111;123;222", "200;123;100", "300;;100"), index.groupRows(1));
+        assertArrayEquals(new long[]{0, 18, 36}, index.groupRowOffsets(1));
+    }
+
+    @Test
+    public void testIndexLookups_Case2() throws IOException {
+        GroupIndex index = writeAndOpenIndex("src/test/resources/input/case2.txt.gz");
+        assertEquals(2, index.groupCount());
+        assertEquals(1, index.groupSize(1));
+        assertEquals(index.findGroup(0, "200"), index.groupOfRow(1));
+        assertEquals(List.of("200;300;100"), index.groupRows(index.findGroup(2, "100")));
+        assertEquals(GroupIndex.NOT_FOUND, index.findGroup(0, ""));
+    }
+
+    @Test
+    public void testRowsAreKeyedByInputLine() throws IOException {
+        Path inputFile = tempDir.resolve("input.txt");
+        Files.writeString(inputFile, INPUT_WITH_DUPLICATES, StandardCharsets.UTF_8);
+        GroupIndex index = writeAndOpenIndex(inputFile.toString());
+        assertEquals(6, index.rowCount());
+        assertEquals(1, index.groupOfRow(0));
+        assertEquals(GroupIndex.NOT_FOUND, index.groupOfRow(1));
+        assertEquals(1, index.groupOfRow(2));
+        assertEquals(GroupIndex.NOT_FOUND, index.groupOfRow(3));
+        assertEquals(1, index.groupOfRow(4));
+        assertEquals(2, index.groupOfRow(5));
+        assertEquals(GroupIndex.NOT_FOUND, index.groupOfRow(6));
+        assertEquals(List.of("1;2", "5;2"), index.groupRows(1));
+        assertArrayEquals(new long[]{0, 23}, index.groupRowOffsets(1));
+        assertArrayEquals(new long[]{31}, index.groupRowOffsets(2));
+    }
+
+    @Test
+    public void testRowsFollowCsvParser() throws IOException {
+        Path inputFile = tempDir.resolve("input.txt");
+        Files.writeString(inputFile, MULTI_LINE_INPUT, StandardCharsets.UTF_8);
+        GroupIndex index = writeAndOpenIndex(inputFile.toString());
+        assertEquals(4, index.rowCount());
+        assertEquals(1, index.groupOfRow(0));
+        assertEquals(GroupIndex.NOT_FOUND, index.groupOfRow(1));
+        assertEquals(1, index.groupOfRow(2));
+        assertEquals(index.findGroup(0, "c"), index.groupOfRow(3));
+        assertEquals(List.of("a\nb;1", "x;1"), index.groupRows(1));
+        assertArrayEquals(new long[]{0, MULTI_LINE_INPUT.indexOf("\"x\"")}, index.groupRowOffsets(1));
+        assertArrayEquals(new long[]{MULTI_LINE_INPUT.indexOf("\"d\"")},
+                index.groupRowOffsets(index.findGroup(0, "d")));
+    }
+
+    @Test
+    public void testValuesContainingSeparator() throws IOException {
+        Path inputFile = tempDir.resolve("input.txt");
+        Files.writeString(inputFile, INPUT_WITH_SEPARATORS, StandardCharsets.UTF_8);
+        GroupIndex csvIndex = writeAndOpenIndex(inputFile.toString());
+        Path columnarFile = tempDir.resolve("input.col");
+        createConverter().convert(inputFile.toString(), columnarFile.toString());
+        GroupIndex columnarIndex = writeAndOpenColumnarIndex(columnarFile);
+        for (GroupIndex index : List.of(csvIndex, columnarIndex)) {
+            assertEquals(1, index.findGroup(0, "a;b"));
+            assertEquals(1, index.findGroup(1, "x"));
+            assertEquals(GroupIndex.NOT_FOUND, index.findGroup(0, "a"));
+            assertEquals(GroupIndex.NOT_FOUND, index.findGroup(2, "x"));
+            assertEquals(index.groupOfRow(2), index.findGroup(1, "b;ю"));
+            assertEquals(index.groupOfRow(3), index.findGroup(1, "b"));
+            assertEquals(GroupIndex.NOT_FOUND, index.findGroup(1, "ю"));
+            assertEquals(GroupIndex.NOT_FOUND, index.findGroup(-1, "x"));
+        }
+    }
+
+    @Test
+    public void testMissingGroups() throws IOException {
+        GroupIndex index = writeAndOpenIndex("src/test/resources/input/case1.txt");
+        for (int group : new int[]{-1, 0, index.groupCount() + 1}) {
+            assertEquals(0, index.groupSize(group));
+            assertEquals(List.of(), index.groupRows(group));
+            assertArrayEquals(new long[0], index.groupRowOffsets(group));
+        }
+    }
+
+    @Test
+    public void testColumnarRowsAreKeyedByColumnarRow() throws IOException {
+        Path inputFile = tempDir.resolve("input.txt");
+        Files.writeString(inputFile, INPUT_WITH_DUPLICATES, StandardCharsets.UTF_8);
+        Path columnarFile = tempDir.resolve("input.col");
+        createConverter().convert(inputFile.toString(), columnarFile.toString());
+        GroupIndex index = writeAndOpenColumnarIndex(columnarFile);
+        assertEquals(4, index.rowCount());
+        assertArrayEquals(new int[]{1, 1, 1, 2},
+                new int[]{index.groupOfRow(0), index.groupOfRow(1), index.groupOfRow(2), index.groupOfRow(3)});
+        assertArrayEquals(new long[]{0, 23}, index.groupRowOffsets(1));
+    }
+
+    private GroupIndex writeAndOpenIndex(String inputFile) throws IOException {
+        Map<Integer, List<String>> groups = groupingService.groupLines(csvReaderService.readCsv(inputFile));
+        Path indexFile = tempDir.resolve("output.idx");
+        indexWriterService.writeIndex(groupingService.sortGroups(groups), inputFile, indexFile.toString());
+        return GroupIndex.open(indexFile);
+    }
+
+    private GroupIndex writeAndOpenColumnarIndex(Path columnarFile) throws IOException {
+        Map<Integer, List<String>> groups = groupingService.groupColumnar(ColumnarFile.open(columnarFile));
+        Path indexFile = tempDir.resolve("columnar.idx");
+        indexWriterService.writeIndex(
+                groupingService.sortGroups(groups), columnarFile.toString(), indexFile.toString());
+        return GroupIndex.open(indexFile);
+    }
+
+    private ColumnarConverterService createConverter() {
+        AppConfiguration appConfiguration = new AppConfiguration();
+        ReflectionTestUtils.setField(appConfiguration, "planningSampleLines", 100);
+        ReflectionTestUtils.setField(appConfiguration, "planningSamplePoints", 1);
+        ReflectionTestUtils.setField(appConfiguration, "disjointSet", DisjointSetType.RANK);
+        return new ColumnarConverterService(new PlanningService(appConfiguration), csvReaderService);
+    }
+}
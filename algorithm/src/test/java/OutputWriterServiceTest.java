@@ -0,0 +1,78 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.unosoft.grouping.configuration.AppConfiguration;
+import ru.unosoft.grouping.service.OutputWriterService;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+public class OutputWriterServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testParallelOutputMatchesSequentialWriter() throws IOException {
+        List<Map.Entry<Integer, List<String>>> sortedGroups = new ArrayList<>();
+        for (int group = 0; group < 1000; group++) {
+            List<String> lines = new ArrayList<>();
+            for (int line = 0; line < 1000 / (group + 1); line++) {
+                lines.add("\"значение " + group + "\";" + line + ";");
+            }
+            sortedGroups.add(Map.entry(group, lines));
+        }
+        Path expectedFile = tempDir.resolve("expected.txt");
+        writeSequentially(expectedFile, sortedGroups, 42);
+        for (int rangeLines : new int[]{1, 7, 100, 1_000_000}) {
+            Path outputFile = tempDir.resolve("output-" + rangeLines + ".txt");
+            createWriter(outputFile, rangeLines).writeOutput(sortedGroups, 42);
+            assertArrayEquals(Files.readAllBytes(expectedFile), Files.readAllBytes(outputFile));
+        }
+    }
+
+    @Test
+    public void testParallelOutputWithoutGroups() throws IOException {
+        Path expectedFile = tempDir.resolve("expected.txt");
+        writeSequentially(expectedFile, List.of(), 0);
+        Path outputFile = tempDir.resolve("output.txt");
+        createWriter(outputFile, 10).writeOutput(List.of(), 0);
+        assertArrayEquals(Files.readAllBytes(expectedFile), Files.readAllBytes(outputFile));
+    }
+
+    private OutputWriterService createWriter(Path outputFile, int rangeLines) {
+        AppConfiguration appConfiguration = new AppConfiguration();
+        ReflectionTestUtils.setField(appConfiguration, "outputFile", outputFile.toString());
+        ReflectionTestUtils.setField(appConfiguration, "outputParallelism", 4);
+        ReflectionTestUtils.setField(appConfiguration, "outputRangeLines", rangeLines);
+        return new OutputWriterService(appConfiguration);
+    }
+
+    private void writeSequentially(
+            Path file, List<Map.Entry<Integer, List<String>>> sortedGroups, long multiGroupCount
+    ) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("Количество групп с более чем одним элементом: " + multiGroupCount);
+            writer.newLine();
+            writer.newLine();
+            int groupNumber = 1;
+            for (Map.Entry<Integer, List<String>> entry : sortedGroups) {
+                writer.write("Группа " + groupNumber++);
+                writer.newLine();
+                for (String line : entry.getValue()) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+                writer.newLine();
+            }
+        }
+    }
+}
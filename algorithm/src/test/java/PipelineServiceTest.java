@@ -0,0 +1,124 @@
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.unosoft.grouping.configuration.AppConfiguration;
+import ru.unosoft.grouping.dto.ParsedChunk;
+import ru.unosoft.grouping.dto.ProcessingPlan;
+import ru.unosoft.grouping.service.CsvReaderService;
+import ru.unosoft.grouping.service.GroupingService;
+import ru.unosoft.grouping.service.PipelineService;
+import ru.unosoft.grouping.util.LineUtil;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+public class PipelineServiceTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private static final Duration THREAD_EXIT_TIMEOUT = Duration.ofSeconds(5);
+
+    private final LineUtil lineUtil = new LineUtil();
+
+    private final CsvReaderService csvReaderService = new CsvReaderService(lineUtil);
+
+    private final GroupingService groupingService = new GroupingService(lineUtil);
+
+    @Test
+    public void testPipelineWithTxtFile_Case1() throws IOException, InterruptedException {
+        assertPipelineOutput("src/test/resources/input/case1.txt", "src/test/resources/expected-output/case1.txt");
+    }
+
+    @Test
+    public void testPipelineWithGzFile_Case1() throws IOException, InterruptedException {
+        assertPipelineOutput("src/test/resources/input/case1.txt.gz", "src/test/resources/expected-output/case1.txt");
+    }
+
+    @Test
+    public void testPipelineWithTxtFile_Case2() throws IOException, InterruptedException {
+        assertPipelineOutput("src/test/resources/input/case2.txt", "src/test/resources/expected-output/case2.txt");
+    }
+
+    @Test
+    public void testPipelineWithGzFile_Case2() throws IOException, InterruptedException {
+        assertPipelineOutput("src/test/resources/input/case2.txt.gz", "src/test/resources/expected-output/case2.txt");
+    }
+
+    @Test
+    public void testParseFailureReachesCaller() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        CsvReaderService failingReader = new CsvReaderService(lineUtil) {
+            @Override
+            public ParsedChunk parseChunk(byte[] chunk, int length) {
+                if (calls.incrementAndGet() == 2) throw new IllegalStateException("Ошибка разбора");
+                return super.parseChunk(chunk, length);
+            }
+        };
+        PipelineService pipelineService = createPipeline(8, failingReader);
+        IllegalStateException exception = assertTimeoutPreemptively(TIMEOUT, () -> assertThrows(
+                IllegalStateException.class,
+                () -> pipelineService.groupLines("src/test/resources/input/case1.txt", ProcessingPlan.defaultPlan())));
+        assertEquals("Ошибка разбора", exception.getMessage());
+        assertFalse(hasLivePipelineThreads());
+    }
+
+    @Test
+    public void testReadFailureReachesCaller() throws InterruptedException {
+        PipelineService pipelineService = createPipeline(8, csvReaderService);
+        assertTimeoutPreemptively(TIMEOUT, () -> assertThrows(
+                FileNotFoundException.class,
+                () -> pipelineService.groupLines(
+                        "src/test/resources/input/missing.txt", ProcessingPlan.defaultPlan())));
+        assertFalse(hasLivePipelineThreads());
+    }
+
+    private void assertPipelineOutput(String inputFile, String expectedFile) throws IOException, InterruptedException {
+        List<String> expectedOutput = Files.readAllLines(Path.of(expectedFile));
+        List<String> sequentialOutput = format(groupingService.groupLines(csvReaderService.readCsv(inputFile)));
+        assertEquals(expectedOutput, sequentialOutput);
+        for (int batchBytes : new int[]{1, 8, 24, 1 << 20}) {
+            PipelineService pipelineService = createPipeline(batchBytes, csvReaderService);
+            Map<Integer, List<String>> groups = assertTimeoutPreemptively(
+                    TIMEOUT, () -> pipelineService.groupLines(inputFile, ProcessingPlan.defaultPlan()));
+            assertEquals(sequentialOutput, format(groups), "batch-bytes " + batchBytes);
+            assertFalse(hasLivePipelineThreads());
+        }
+    }
+
+    private PipelineService createPipeline(int batchBytes, CsvReaderService reader) {
+        AppConfiguration appConfiguration = new AppConfiguration();
+        ReflectionTestUtils.setField(appConfiguration, "pipelineBatchBytes", batchBytes);
+        ReflectionTestUtils.setField(appConfiguration, "pipelineParseParallelism", 2);
+        ReflectionTestUtils.setField(appConfiguration, "pipelineParseQueueDepth", 2);
+        ReflectionTestUtils.setField(appConfiguration, "pipelineGroupQueueDepth", 2);
+        return new PipelineService(appConfiguration, reader, groupingService);
+    }
+
+    private List<String> format(Map<Integer, List<String>> groups) {
+        return groups.values().stream()
+                .map(group -> String.join("\n", group))
+                .collect(Collectors.joining("\n\n"))
+                .lines()
+                .toList();
+    }
+
+    // Пул завершается вместе с последней задачей, а его потоки могут ещё доработать несколько инструкций.
+    private boolean hasLivePipelineThreads() throws InterruptedException {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("pipeline-")) thread.join(THREAD_EXIT_TIMEOUT.toMillis());
+        }
+        return Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.isAlive() && thread.getName().startsWith("pipeline-"));
+    }
+}
@@ -0,0 +1,99 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.unosoft.grouping.configuration.AppConfiguration;
+import ru.unosoft.grouping.dto.ProcessingPlan;
+import ru.unosoft.grouping.dto.ProcessingStrategy;
+import ru.unosoft.grouping.service.PlanningService;
+import ru.unosoft.grouping.util.DisjointSetType;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PlanningServiceTest {
+
+    private static final long GIGABYTE = 1L << 30;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testEstimateCardinality() {
+        Map<String, Integer> allDistinct = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            allDistinct.put("v" + i, 1);
+        }
+        assertEquals(1000, PlanningService.estimateCardinality(allDistinct, 100, 10_000));
+        assertEquals(100, PlanningService.estimateCardinality(allDistinct, 100, 100));
+
+        Map<String, Integer> repeated = Map.of("a", 50, "b", 50);
+        assertEquals(2, PlanningService.estimateCardinality(repeated, 100, 1_000_000));
+
+        Map<String, Integer> sparse = Map.of("a", 1, "b", 1);
+        assertEquals(200, PlanningService.estimateCardinality(sparse, 100, 1_000_000));
+    }
+
+    @Test
+    public void testCapacities() {
+        assertEquals(110, PlanningService.toCapacity(100));
+        assertEquals(Integer.MAX_VALUE - 8, PlanningService.toCapacity(Long.MAX_VALUE / 2));
+        assertEquals(147, PlanningService.toHashCapacity(100));
+        assertEquals(1 << 30, PlanningService.toHashCapacity(Long.MAX_VALUE / 2));
+    }
+
+    @Test
+    public void testChooseStrategy() {
+        assertEquals(ProcessingStrategy.IN_MEMORY,
+                PlanningService.chooseStrategy(GIGABYTE / 2, GIGABYTE, 8 * GIGABYTE));
+        assertEquals(ProcessingStrategy.OFF_HEAP,
+                PlanningService.chooseStrategy(2 * GIGABYTE, GIGABYTE, 8 * GIGABYTE));
+        assertEquals(ProcessingStrategy.SPILLING,
+                PlanningService.chooseStrategy(8 * GIGABYTE, GIGABYTE, 8 * GIGABYTE));
+        assertEquals(ProcessingStrategy.SPILLING,
+                PlanningService.chooseStrategy(2 * GIGABYTE, GIGABYTE, -1));
+    }
+
+    @Test
+    public void testFitToHeap() {
+        long estimatedHeapBytes = 10 * GIGABYTE;
+        assertEquals(1_000_000,
+                PlanningService.fitToHeap(1_000_000, ProcessingStrategy.IN_MEMORY, estimatedHeapBytes, GIGABYTE));
+        assertEquals(70_000,
+                PlanningService.fitToHeap(1_000_000, ProcessingStrategy.OFF_HEAP, estimatedHeapBytes, GIGABYTE));
+        assertEquals(70_000,
+                PlanningService.fitToHeap(1_000_000, ProcessingStrategy.SPILLING, estimatedHeapBytes, GIGABYTE));
+    }
+
+    @Test
+    public void testPlanToleratesInvalidUtf8() throws IOException {
+        Path file = tempDir.resolve("input.txt");
+        Files.write(file, "\"1\";\"2\"\n\"3\";\"ÿ\"\n\"5\";\"6\"\n".getBytes(StandardCharsets.ISO_8859_1));
+        ProcessingPlan plan = createPlanningService().plan(file.toString());
+        assertEquals(2, plan.getEstimatedColumns());
+        assertEquals(ProcessingStrategy.IN_MEMORY, plan.getStrategy());
+    }
+
+    @Test
+    public void testPlanFallsBackToDefaultOnReadError() throws IOException {
+        Path file = tempDir.resolve("broken.txt.gz");
+        Files.write(file, new byte[]{1, 2, 3});
+        ProcessingPlan plan = createPlanningService().plan(file.toString());
+        assertEquals(ProcessingPlan.DEFAULT_CAPACITY, plan.getRowCapacity());
+        assertTrue(plan.getEstimatedRows() < 0);
+    }
+
+    private PlanningService createPlanningService() {
+        AppConfiguration appConfiguration = new AppConfiguration();
+        ReflectionTestUtils.setField(appConfiguration, "planningSampleLines", 10_000);
+        ReflectionTestUtils.setField(appConfiguration, "planningSamplePoints", 8);
+        ReflectionTestUtils.setField(appConfiguration, "disjointSet", DisjointSetType.RANK);
+        return new PlanningService(appConfiguration);
+    }
+}